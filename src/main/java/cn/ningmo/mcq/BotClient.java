@@ -1,74 +1,134 @@
 package cn.ningmo.mcq;
 
 import cn.ningmo.mcq.command.CustomCommand;
+import cn.ningmo.mcq.filter.MessageDeduplicator;
+import cn.ningmo.mcq.filter.FilterDirection;
 import cn.ningmo.mcq.filter.MessageFilter;
+import cn.ningmo.mcq.message.MessageTemplate;
+import cn.ningmo.mcq.message.SegmentRenderer;
+import cn.ningmo.mcq.message.MessageTemplate.Placeholder;
+import cn.ningmo.mcq.network.ApiCallTracker;
+import cn.ningmo.mcq.network.BotConnection;
+import cn.ningmo.mcq.network.ConnectionInfo;
+import cn.ningmo.mcq.network.FrameEncoder;
+import cn.ningmo.mcq.network.Outbox;
+import cn.ningmo.mcq.network.Priority;
+import cn.ningmo.mcq.network.InboundEvent;
+import cn.ningmo.mcq.util.LongHashSet;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import org.java_websocket.client.WebSocketClient;
-import org.java_websocket.handshake.ServerHandshake;
+import com.google.gson.JsonElement;
 
-import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
 import java.util.Optional;
 import java.util.Arrays;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.lang.reflect.Method;
 
-public class BotClient extends WebSocketClient {
+/**
+ * OneBot事件处理和消息发送，所有连接共用一个实例
+ */
+public class BotClient {
     private final MCQ plugin;
-    private final Map<Long, Map<String, Long>> cooldowns = new HashMap<>();
-    private final Map<Long, Long> statusCooldowns = new HashMap<>();
+    // 事件在多个工作线程中处理，冷却记录需要线程安全
+    private final Map<Long, Map<String, Long>> cooldowns = new ConcurrentHashMap<>();
+    private final Map<Long, Long> statusCooldowns = new ConcurrentHashMap<>();
     
-    public BotClient(MCQ plugin, String wsUrl) {
-        super(URI.create(wsUrl));
+    public BotClient(MCQ plugin) {
         this.plugin = plugin;
     }
     
-    @Override
-    public void onOpen(ServerHandshake handshake) {
-        plugin.getLogManager().websocket("成功连接到OneBot服务器！");
-        startHeartbeat();
+    /**
+     * 连接建立后由连接调用
+     */
+    public void onConnectionOpen(BotConnection connection) {
+        ConnectionInfo info = connection.getInfo();
+        plugin.getLogManager().websocket("[" + info.getName() + "] 成功连接到OneBot服务器！");
+        
+        // 重新发送断线期间保存的消息
+        Outbox outbox = plugin.getOutbox();
+        if (outbox != null && !outbox.isEmpty()) {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                int count = outbox.replay(plugin.getOutboundQueue());
+                plugin.getLogManager().websocket("已重新发送断线期间的 " + count + " 条消息");
+            });
+        }
+        
+        // 获取当前登录的账号信息
+        callApiAsync(connection, "get_login_info", new JsonObject()).thenAccept(response -> {
+            JsonObject data = response.getAsJsonObject("data");
+            info.setSelfId(data.get("user_id").getAsLong());
+            plugin.getLogManager().websocket(String.format(
+                "[%s] 当前登录账号: %s (%d)",
+                info.getName(), data.get("nickname").getAsString(), info.getSelfId()
+            ));
+        }).exceptionally(e -> {
+            plugin.getLogManager().debug("获取登录信息失败: " + e.getMessage());
+            return null;
+        });
+        
+        // 获取账号所在的群，用于为每个群选择连接
+        callApiAsync(connection, "get_group_list", new JsonObject()).thenAccept(response -> {
+            List<Long> groups = new ArrayList<>();
+            for (JsonElement group : response.getAsJsonArray("data")) {
+                groups.add(group.getAsJsonObject().get("group_id").getAsLong());
+            }
+            info.setGroups(new LongHashSet(groups));
+        }).exceptionally(e -> {
+            plugin.getLogManager().debug("获取群列表失败: " + e.getMessage());
+            return null;
+        });
     }
     
-    @Override
-    public void onMessage(String message) {
+    /**
+     * 处理连接收到的一帧
+     */
+    public void handleFrame(BotConnection source, String message) {
         try {
             if (plugin.getLogManager().isWebSocketDebug()) {
                 plugin.getLogManager().debug("收到消息: " + message);
             }
             
-            JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+            // 流式预解析，非互通群的消息直接丢弃
+            InboundEvent event = plugin.getInboundEventParser().parse(message);
+            if (event == null) {
+                return;
+            }
             
-            // 处理心跳响应
-            if (json.has("echo") && "heartbeat".equals(json.get("echo").getAsString())) {
-                if (plugin.getLogManager().isWebSocketDebug()) {
-                    plugin.getLogManager().debug("收到心跳响应");
+            // 处理API响应
+            if (event.isResponse()) {
+                String echo = event.getEcho();
+                
+                // 处理心跳响应
+                if ("heartbeat".equals(echo)) {
+                    plugin.getConnectionPool().getSupervisor().onHeartbeatResponse(source);
+                    if (plugin.getLogManager().isWebSocketDebug()) {
+                        plugin.getLogManager().debug("收到心跳响应");
+                    }
+                    return;
                 }
+                
+                plugin.getApiCallTracker().complete(echo, event.getResponse());
                 return;
             }
             
-            // 处理事件消息
-            if (!json.has("post_type")) {
+            // 元事件开销很小，直接在读线程处理
+            if ("meta_event".equals(event.getPostType())) {
+                handleMetaEvent(event);
                 return;
             }
             
-            String postType = json.get("post_type").getAsString();
-            switch (postType) {
-                case "message":
-                    handleMessageEvent(json);
-                    break;
-                case "notice":
-                    handleNoticeEvent(json);
-                    break;
-                case "request":
-                    handleRequestEvent(json);
-                    break;
-                case "meta_event":
-                    handleMetaEvent(json);
-                    break;
+            // 多个账号在同一个群时只处理负责该群的连接收到的事件
+            if (event.getGroupId() != 0 && !plugin.getConnectionPool().isOwner(source, event.getGroupId())) {
+                return;
+            }
+            
+            // 其它事件交给工作线程，同一个群或同一个用户的事件按顺序处理
+            long key = event.getGroupId() != 0 ? event.getGroupId() : -event.getUserId();
+            if (!plugin.getEventDispatcher().dispatch(key, () -> handleEvent(source, event))) {
+                plugin.getLogManager().debug("事件处理队列已满，丢弃事件: " + message);
             }
         } catch (Exception e) {
             if (plugin.getLogManager().isDebug()) {
@@ -77,15 +137,29 @@ public class BotClient extends WebSocketClient {
         }
     }
     
-    private void handleMessageEvent(JsonObject json) {
+    private void handleEvent(BotConnection source, InboundEvent event) {
+        switch (event.getPostType()) {
+            case "message":
+                handleMessageEvent(source, event);
+                break;
+            case "notice":
+                handleNoticeEvent(event);
+                break;
+            case "request":
+                handleRequestEvent(event);
+                break;
+        }
+    }
+    
+    private void handleMessageEvent(BotConnection source, InboundEvent event) {
         try {
-            String messageType = json.get("message_type").getAsString();
+            String messageType = event.getMessageType();
             switch (messageType) {
                 case "private":
-                    handlePrivateMessage(json);
+                    handlePrivateMessage(source, event);
                     break;
                 case "group":
-                    handleGroupMessage(json);
+                    handleGroupMessage(event);
                     break;
             }
         } catch (Exception e) {
@@ -95,9 +169,9 @@ public class BotClient extends WebSocketClient {
         }
     }
     
-    private void handleNoticeEvent(JsonObject json) {
+    private void handleNoticeEvent(InboundEvent event) {
         try {
-            String noticeType = json.get("notice_type").getAsString();
+            String noticeType = event.getNoticeType();
             switch (noticeType) {
                 case "group_increase":
                     // 处理群成员增加
@@ -114,9 +188,9 @@ public class BotClient extends WebSocketClient {
         }
     }
     
-    private void handleMetaEvent(JsonObject json) {
+    private void handleMetaEvent(InboundEvent event) {
         try {
-            String metaEventType = json.get("meta_event_type").getAsString();
+            String metaEventType = event.getMetaEventType();
             if ("heartbeat".equals(metaEventType)) {
                 if (plugin.getLogManager().isWebSocketDebug()) {
                     plugin.getLogManager().debug("收到心跳事件");
@@ -129,81 +203,72 @@ public class BotClient extends WebSocketClient {
         }
     }
     
-    private void handleGroupMessage(JsonObject json) {
+    private void handleGroupMessage(InboundEvent event) {
         try {
             if (plugin.getLogManager().isDebug()) {
-                plugin.getLogManager().debug("收到群消息: " + json.toString());
+                plugin.getLogManager().debug("收到群消息: " + event.getRaw());
             }
 
             // 检查必要字段
-            if (!json.has("message") || !json.has("group_id") || 
-                !json.has("sender") || !json.get("sender").isJsonObject()) {
+            if (!event.hasMessage() || event.getGroupId() == 0 || !event.hasSender()) {
                 return;
             }
 
             // 获取群号
-            long groupId = json.get("group_id").getAsLong();
+            long groupId = event.getGroupId();
             
             // 检查是否为配置的群
-            List<Long> configGroups = plugin.getConfig().getLongList("bot.groups");
-            if (!configGroups.contains(groupId)) {
+            if (!plugin.getSettings().isBridgedGroup(groupId)) {
                 if (plugin.getLogManager().isDebug()) {
                     plugin.getLogManager().debug("忽略非配置群消息, 群号: " + groupId);
                 }
                 return;
             }
 
+            // 丢弃已转发过的消息
+            MessageDeduplicator deduplicator = plugin.getMessageDeduplicator();
+            if (deduplicator != null && event.getMessageId() != 0
+                    && deduplicator.isDuplicate(groupId, event.getMessageId())) {
+                if (plugin.getLogManager().isDebug()) {
+                    plugin.getLogManager().debug("忽略重复消息, 群号: " + groupId + ", 消息ID: " + event.getMessageId());
+                }
+                return;
+            }
+
             // 获取发送者信息
-            JsonObject sender = json.get("sender").getAsJsonObject();
-            String senderName = sender.get("nickname").getAsString();
+            String senderName = event.getSenderNickname();
             
-            // 获取消息内容
-            String message;
-            if (json.has("message_format") && "array".equals(json.get("message_format").getAsString())) {
-                // 处理数组格式消息
-                JsonArray messageArray = json.getAsJsonArray("message");
-                StringBuilder messageBuilder = new StringBuilder();
-                
-                for (JsonElement element : messageArray) {
-                    JsonObject msgObj = element.getAsJsonObject();
-                    String type = msgObj.get("type").getAsString();
-                    JsonObject data = msgObj.get("data").getAsJsonObject();
-                    
-                    switch (type) {
-                        case "text":
-                            messageBuilder.append(data.get("text").getAsString());
-                            break;
-                        case "at":
-                            messageBuilder.append("@").append(data.get("name").getAsString()).append(" ");
-                            break;
-                        case "image":
-                            messageBuilder.append("[图片] ");
-                            break;
-                        // 添加其他类型的处理...
-                    }
-                }
-                message = messageBuilder.toString().trim();
+            // 渲染消息内容
+            SegmentRenderer renderer = plugin.getSegmentRenderer();
+            SegmentRenderer.Result rendered;
+            if (event.getMessageArray() != null) {
+                rendered = renderer.render(event.getMessageArray());
             } else {
-                // 处理原始消息
-                message = json.get("raw_message").getAsString();
+                rendered = renderer.render(event.getRawMessage() != null ? event.getRawMessage() : event.getMessageText());
             }
+            String message = rendered.getText();
 
             // 过滤消息
-            MessageFilter.FilterResult filterResult = plugin.getMessageFilter().filter(message, sender.get("user_id").getAsLong());
+            MessageFilter.FilterResult filterResult = plugin.getMessageFilter().filter(
+                FilterDirection.QQ_TO_MC, message, rendered.isPureImage(), groupId, event.getSenderUserId());
             if (!filterResult.isAllowed()) {
                 return;
             }
             message = filterResult.getMessage();
 
             // 转发到服务器
-            String format = plugin.getConfig().getString("message-format.qq-to-mc", "§b[QQ] §f{sender}: {message}");
-            String finalMessage = format
-                .replace("{sender}", senderName)
-                .replace("{message}", message);
+            MessageTemplate template = plugin.getSettings().getQqToMcTemplate();
+            MessageTemplate.Values values = MessageTemplate.values()
+                .set(Placeholder.SENDER, senderName)
+                .set(Placeholder.MESSAGE, message)
+                .set(Placeholder.GROUP, groupId)
+                .set(Placeholder.QQ, event.getSenderUserId());
+            if (template.uses(Placeholder.TIME)) {
+                values.set(Placeholder.TIME, MessageTemplate.currentTime());
+            }
+            String finalMessage = template.render(values);
 
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                plugin.getServer().broadcastMessage(finalMessage);
-            });
+            plugin.getBroadcastInbox().submit(finalMessage);
 
         } catch (Exception e) {
             plugin.getLogManager().error("处理群消息时发生错误", e);
@@ -220,8 +285,7 @@ public class BotClient extends WebSocketClient {
         String cmd = args[0].toLowerCase();
         
         String adminPrefix = plugin.getConfig().getString("permissions.admin-prefix").substring(1);
-        List<Long> admins = plugin.getConfig().getLongList("bot.admins");
-        boolean isAdmin = admins.contains(senderId);
+        boolean isAdmin = plugin.getSettings().isAdmin(senderId);
         
         Optional<CustomCommand> command = plugin.getCommandManager().getCommand(cmd);
         if (!command.isPresent()) {
@@ -232,7 +296,7 @@ public class BotClient extends WebSocketClient {
         
         // 检查管理员权限
         if (customCmd.isAdminOnly() && !isAdmin) {
-            sendGroupMessage(groupId, "你没有权限执行此命令！");
+            sendGroupMessage(groupId, "你没有权限执行此命令！", Priority.HIGH);
             return;
         }
         
@@ -248,13 +312,13 @@ public class BotClient extends WebSocketClient {
     private boolean checkCooldown(long senderId, long groupId, CustomCommand cmd) {
         if (cmd.getCooldown() <= 0) return true;
         
-        Map<String, Long> userCooldowns = cooldowns.computeIfAbsent(senderId, k -> new HashMap<>());
+        Map<String, Long> userCooldowns = cooldowns.computeIfAbsent(senderId, k -> new ConcurrentHashMap<>());
         long lastUse = userCooldowns.getOrDefault(cmd.getName(), 0L);
         long now = System.currentTimeMillis();
         
         if (now - lastUse < cmd.getCooldown() * 1000) {
             long remainingSeconds = (cmd.getCooldown() * 1000 - (now - lastUse)) / 1000;
-            sendGroupMessage(groupId, "命令冷却中，请等待 " + remainingSeconds + " 秒后再试");
+            sendGroupMessage(groupId, "命令冷却中，请等待 " + remainingSeconds + " 秒后再试", Priority.HIGH);
             return false;
         }
         
@@ -275,7 +339,7 @@ public class BotClient extends WebSocketClient {
                     
                 case "bind":
                     if (args.length < 2) {
-                        sendGroupMessage(groupId, "用法: !bind <游戏ID>");
+                        sendGroupMessage(groupId, "用法: !bind <游戏ID>", Priority.HIGH);
                         return;
                     }
                     plugin.getWhitelistManager().handleBindRequest(senderId, args[1], groupId);
@@ -283,14 +347,13 @@ public class BotClient extends WebSocketClient {
                     
                 case "broadcast":
                     String message = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
-                    plugin.getServer().broadcastMessage("§c[公告] §f" + message);
+                    plugin.getServer().getScheduler().runTask(plugin, () ->
+                        plugin.getServer().broadcastMessage("§c[公告] §f" + message));
                     break;
                     
                 case "qq_broadcast":
                     String qqMessage = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
-                    for (Long gid : plugin.getConfig().getLongList("bot.groups")) {
-                        sendGroupMessage(gid, "[公告] " + qqMessage);
-                    }
+                    broadcastGroupMessage("[公告] " + qqMessage, Priority.HIGH);
                     break;
                     
                 // 添加更多动作处理...
@@ -316,13 +379,13 @@ public class BotClient extends WebSocketClient {
     
     private void sendServerStatus(long groupId) {
         // 检查冷却
-        long cooldown = plugin.getConfig().getLong("status.cooldown", 30) * 1000; // 转换为毫秒
+        long cooldown = plugin.getSettings().getStatusCooldownMillis();
         long lastUse = statusCooldowns.getOrDefault(groupId, 0L);
         long now = System.currentTimeMillis();
         
         if (now - lastUse < cooldown) {
             long remainingSeconds = (cooldown - (now - lastUse)) / 1000;
-            sendGroupMessage(groupId, "命令冷却中，请等待 " + remainingSeconds + " 秒后再试");
+            sendGroupMessage(groupId, "命令冷却中，请等待 " + remainingSeconds + " 秒后再试", Priority.HIGH);
             return;
         }
         
@@ -334,7 +397,7 @@ public class BotClient extends WebSocketClient {
         status.append("在线玩家：").append(onlinePlayers).append("/").append(maxPlayers).append("\n");
         
         // TPS信息
-        if (plugin.getConfig().getBoolean("status.show-tps", true)) {
+        if (plugin.getSettings().isStatusShowTps()) {
             double tps;
             try {
                 Object serverInstance = plugin.getServer().getClass().getMethod("getServer").invoke(plugin.getServer());
@@ -348,7 +411,7 @@ public class BotClient extends WebSocketClient {
         }
         
         // 内存信息
-        if (plugin.getConfig().getBoolean("status.show-memory", true)) {
+        if (plugin.getSettings().isStatusShowMemory()) {
             Runtime runtime = Runtime.getRuntime();
             int maxMemory = (int) (runtime.maxMemory() / 1024 / 1024);
             int totalMemory = (int) (runtime.totalMemory() / 1024 / 1024);
@@ -358,115 +421,87 @@ public class BotClient extends WebSocketClient {
         }
         
         // 在线玩家列表
-        if (plugin.getConfig().getBoolean("status.show-player-list", true) && onlinePlayers > 0) {
+        if (plugin.getSettings().isStatusShowPlayerList() && onlinePlayers > 0) {
             status.append("\n在线玩家列表：\n");
             plugin.getServer().getOnlinePlayers().forEach(player -> 
                 status.append("- ").append(player.getName()).append("\n")
             );
         }
         
-        sendGroupMessage(groupId, status.toString());
+        sendGroupMessage(groupId, status.toString(), Priority.HIGH);
         statusCooldowns.put(groupId, now);
     }
     
     public void sendGroupMessage(long groupId, String message) {
-        JsonObject params = new JsonObject();
-        params.addProperty("group_id", groupId);
-        params.addProperty("message", message);
-        callApi("send_group_msg", params, null);
+        sendGroupMessage(groupId, message, Priority.NORMAL);
     }
     
-    @Override
-    public void onClose(int code, String reason, boolean remote) {
-        plugin.getLogManager().websocket("与OneBot服务器断开连接: " + reason);
-        
-        // 检查重连设置
-        if (!plugin.getConfig().getBoolean("bot.reconnect.enabled", true)) {
-            return;
-        }
-        
-        int delay = plugin.getConfig().getInt("bot.reconnect.delay", 30);
-        int maxAttempts = plugin.getConfig().getInt("bot.reconnect.max-attempts", 5);
-        
-        // 使用异步任务进行重连
-        plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, () -> {
-            try {
-                if (!isOpen() && !isClosing()) {
-                    plugin.getLogger().info("正在尝试重新连接到OneBot服务器...");
-                    reconnectBlocking();
-                }
-            } catch (InterruptedException e) {
-                plugin.getLogger().severe("重连时发生错误: " + e.getMessage());
-            }
-        }, delay * 20L);
+    public void sendGroupMessage(long groupId, String message, Priority priority) {
+        String frame = FrameEncoder.groupMessage(groupId, FrameEncoder.escape(message), null);
+        plugin.getOutboundQueue().offer(frame, groupId, priority);
     }
     
-    public void disconnect() {
-        try {
-            super.close();
-        } catch (Exception e) {
-            plugin.getLogger().severe("断开连接时发生错误: " + e.getMessage());
+    /**
+     * 向所有配置的互通群发送消息，消息正文只转义一次
+     */
+    public void broadcastGroupMessage(String message, Priority priority) {
+        String escaped = FrameEncoder.escape(message);
+        for (long groupId : plugin.getSettings().getGroups()) {
+            plugin.getOutboundQueue().offer(FrameEncoder.groupMessage(groupId, escaped, null), groupId, priority);
         }
     }
     
-    @Override
-    public void onError(Exception ex) {
-        plugin.getLogManager().error("WebSocket连接错误", ex);
-    }
-    
-    // 添加CQ码处理方法
-    private String processCQCodes(String message) {
+    /**
+     * 通过指定连接直接发起API调用，不经过出站队列
+     */
+    private CompletableFuture<JsonObject> callApiAsync(BotConnection connection, String action, JsonObject params) {
+        ApiCallTracker.PendingCall call = plugin.getApiCallTracker().register(action, plugin.getSettings().getApiTimeoutMillis());
+        
+        JsonObject request = new JsonObject();
+        request.addProperty("action", action);
+        request.add("params", params);
+        request.addProperty("echo", call.getEcho());
         try {
-            // 替换CQ码中的特殊字符
-            message = message.replaceAll("&#91;", "[")
-                            .replaceAll("&#93;", "]")
-                            .replaceAll("&amp;", "&");
-            
-            // 处理图片CQ码
-            message = message.replaceAll("\\[CQ:image,[^\\]]*\\]", "[图片]");
-            
-            // 处理表情CQ码
-            message = message.replaceAll("\\[CQ:face,id=\\d+\\]", "");
-            
-            return message;
-        } catch (Exception e) {
-            plugin.getLogManager().error("处理CQ码时发生错误", e);
-            return message;
+            connection.send(request.toString());
+        } catch (RuntimeException e) {
+            plugin.getApiCallTracker().fail(call, e);
         }
+        return call.getFuture();
     }
     
-    // 添加心跳检测
-    private void startHeartbeat() {
-        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-            if (isOpen()) {
-                JsonObject heartbeat = new JsonObject();
-                heartbeat.addProperty("action", "get_status");
-                heartbeat.addProperty("echo", "heartbeat");
-                send(heartbeat.toString());
-            }
-        }, 20L * 30, 20L * 30); // 每30秒发送一次心跳
+    // 添加API调用方法
+    public CompletableFuture<JsonObject> callApiAsync(String action, JsonObject params) {
+        return callApiAsync(action, params, 0, Priority.HIGH);
     }
     
-    // 添加API调用方法
-    private void callApi(String action, JsonObject params, String echo) {
+    /**
+     * 发起一次需要响应的API调用
+     * @return 收到OneBot响应时完成的Future，失败或超时时以异常结束
+     */
+    public CompletableFuture<JsonObject> callApiAsync(String action, JsonObject params, long target, Priority priority) {
+        long timeout = plugin.getSettings().getApiTimeoutMillis();
+        ApiCallTracker.PendingCall call = plugin.getApiCallTracker().register(action, timeout);
+        
         JsonObject request = new JsonObject();
         request.addProperty("action", action);
         request.add("params", params);
-        if (echo != null) {
-            request.addProperty("echo", echo);
+        request.addProperty("echo", call.getEcho());
+        ApiCallTracker tracker = plugin.getApiCallTracker();
+        if (!plugin.getOutboundQueue().offerCall(request.toString(), target, priority, e -> tracker.fail(call, e))) {
+            tracker.fail(call, new IllegalStateException("发送队列已满: " + action));
         }
-        send(request.toString());
+        return call.getFuture();
     }
     
-    private void handleRequestEvent(JsonObject json) {
+    private void handleRequestEvent(InboundEvent event) {
         try {
-            String requestType = json.get("request_type").getAsString();
+            String requestType = event.getRequestType();
             switch (requestType) {
                 case "friend":
-                    handleFriendRequest(json);
+                    handleFriendRequest(event);
                     break;
                 case "group":
-                    handleGroupRequest(json);
+                    handleGroupRequest(event);
                     break;
             }
         } catch (Exception e) {
@@ -476,42 +511,39 @@ public class BotClient extends WebSocketClient {
         }
     }
     
-    private void handleFriendRequest(JsonObject json) {
+    private void handleFriendRequest(InboundEvent event) {
         // 好友请求处理逻辑
         if (plugin.getLogManager().isDebug()) {
-            plugin.getLogManager().debug("收到好友请求: " + json.toString());
+            plugin.getLogManager().debug("收到好友请求: " + event.getRaw());
         }
     }
     
-    private void handleGroupRequest(JsonObject json) {
+    private void handleGroupRequest(InboundEvent event) {
         // 群请求处理逻辑
         if (plugin.getLogManager().isDebug()) {
-            plugin.getLogManager().debug("收到群请求: " + json.toString());
+            plugin.getLogManager().debug("收到群请求: " + event.getRaw());
         }
     }
     
-    private void handlePrivateMessage(JsonObject json) {
+    private void handlePrivateMessage(BotConnection source, InboundEvent event) {
         try {
             // 添加详细的空值检查
-            if (!json.has("user_id") || !json.has("message") || !json.has("sender")) {
-                plugin.getLogManager().debug("私聊消息缺少必要字段: " + json.toString());
+            if (event.getUserId() == 0 || !event.hasMessage() || !event.hasSender()) {
+                plugin.getLogManager().debug("私聊消息缺少必要字段: " + event.getRaw());
                 return;
             }
             
             // 添加类型检查
-            if (!json.get("user_id").isJsonPrimitive() || 
-                !json.get("message").isJsonPrimitive() || 
-                !json.get("sender").isJsonObject()) {
-                plugin.getLogManager().debug("私聊消息字段类型错误: " + json.toString());
+            if (event.getMessageText() == null) {
+                plugin.getLogManager().debug("私聊消息字段类型错误: " + event.getRaw());
                 return;
             }
             
-            long userId = json.get("user_id").getAsLong();
-            String message = json.get("message").getAsString();
+            long userId = event.getUserId();
+            String message = event.getMessageText();
             
             // 检查是否为管理员
-            List<Long> admins = plugin.getConfig().getLongList("bot.admins");
-            if (!admins.contains(userId)) {
+            if (!plugin.getSettings().isAdmin(userId)) {
                 if (plugin.getLogManager().isDebug()) {
                     plugin.getLogManager().debug(String.format(
                         "忽略非管理员私聊消息: userId=%d", userId
@@ -520,15 +552,17 @@ public class BotClient extends WebSocketClient {
                 return;
             }
             
+            // 回复需要从收到私聊的账号发出
+            plugin.getConnectionPool().routePrivate(userId, source);
+            
             // 处理管理员私聊命令
             if (message.startsWith("!")) {
                 handlePrivateCommand(message, userId);
             }
             
             if (plugin.getLogManager().isMessagesEnabled()) {
-                JsonObject sender = json.getAsJsonObject("sender");
-                String senderName = sender.has("nickname") ? 
-                    sender.get("nickname").getAsString() : 
+                String senderName = event.getSenderNickname() != null ? 
+                    event.getSenderNickname() : 
                     String.valueOf(userId);
                     
                 plugin.getLogManager().message(String.format(
@@ -539,7 +573,7 @@ public class BotClient extends WebSocketClient {
         } catch (Exception e) {
             if (plugin.getLogManager().isDebug()) {
                 plugin.getLogManager().error("处理私聊消息时发生错误", e);
-                plugin.getLogManager().debug("原始消息: " + json.toString());
+                plugin.getLogManager().debug("原始消息: " + event.getRaw());
             }
         }
     }
@@ -575,8 +609,11 @@ public class BotClient extends WebSocketClient {
             // 执行动作
             switch (processedAction.split(" ")[0]) {
                 case "reload":
-                    plugin.reloadConfig();
-                    sendPrivateMessage(userId, "配置文件已重载！");
+                    // 重载配置需要在主线程执行
+                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                        plugin.reloadConfig();
+                        sendPrivateMessage(userId, "配置文件已重载！");
+                    });
                     break;
                     
                 case "status":
@@ -589,10 +626,8 @@ public class BotClient extends WebSocketClient {
     }
     
     private void sendPrivateMessage(long userId, String message) {
-        JsonObject params = new JsonObject();
-        params.addProperty("user_id", userId);
-        params.addProperty("message", message);
-        callApi("send_private_msg", params, null);
+        String frame = FrameEncoder.privateMessage(userId, FrameEncoder.escape(message), null);
+        plugin.getOutboundQueue().offer(frame, -userId, Priority.HIGH);
     }
     
     private void sendServerStatusPrivate(long userId) {
@@ -604,7 +639,7 @@ public class BotClient extends WebSocketClient {
         status.append("在线玩家：").append(onlinePlayers).append("/").append(maxPlayers).append("\n");
         
         // TPS信息
-        if (plugin.getConfig().getBoolean("status.show-tps", true)) {
+        if (plugin.getSettings().isStatusShowTps()) {
             double tps;
             try {
                 Object serverInstance = plugin.getServer().getClass().getMethod("getServer").invoke(plugin.getServer());
@@ -618,7 +653,7 @@ public class BotClient extends WebSocketClient {
         }
         
         // 内存信息
-        if (plugin.getConfig().getBoolean("status.show-memory", true)) {
+        if (plugin.getSettings().isStatusShowMemory()) {
             Runtime runtime = Runtime.getRuntime();
             int maxMemory = (int) (runtime.maxMemory() / 1024 / 1024);
             int totalMemory = (int) (runtime.totalMemory() / 1024 / 1024);
@@ -628,7 +663,7 @@ public class BotClient extends WebSocketClient {
         }
         
         // 在线玩家列表
-        if (plugin.getConfig().getBoolean("status.show-player-list", true) && onlinePlayers > 0) {
+        if (plugin.getSettings().isStatusShowPlayerList() && onlinePlayers > 0) {
             status.append("\n在线玩家列表：\n");
             plugin.getServer().getOnlinePlayers().forEach(player -> 
                 status.append("- ").append(player.getName()).append("\n")
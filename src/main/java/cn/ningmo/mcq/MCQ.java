@@ -1,20 +1,45 @@
 package cn.ningmo.mcq;
 
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.IOException;
 import cn.ningmo.mcq.command.CommandManager;
+import cn.ningmo.mcq.config.Settings;
 import cn.ningmo.mcq.util.LogManager;
+import cn.ningmo.mcq.filter.MessageDeduplicator;
 import cn.ningmo.mcq.filter.MessageFilter;
+import cn.ningmo.mcq.message.BroadcastInbox;
+import cn.ningmo.mcq.message.ChatBatcher;
+import cn.ningmo.mcq.message.JoinQuitDigest;
+import cn.ningmo.mcq.message.SegmentRenderer;
 import cn.ningmo.mcq.monitor.PerformanceMonitor;
+import cn.ningmo.mcq.network.ApiCallTracker;
+import cn.ningmo.mcq.network.ConnectionPool;
+import cn.ningmo.mcq.network.EventDispatcher;
+import cn.ningmo.mcq.network.InboundEventParser;
+import cn.ningmo.mcq.network.Outbox;
+import cn.ningmo.mcq.network.OutboundQueue;
 
 public class MCQ extends JavaPlugin {
     private static MCQ instance;
+    private volatile Settings settings;
     private BotClient botClient;
+    private ConnectionPool connectionPool;
+    private OutboundQueue outboundQueue;
+    private ApiCallTracker apiCallTracker;
+    private Outbox outbox;
+    private InboundEventParser inboundEventParser;
+    private EventDispatcher eventDispatcher;
+    private MessageDeduplicator messageDeduplicator;
+    private BroadcastInbox broadcastInbox;
+    private SegmentRenderer segmentRenderer;
     private WhitelistManager whitelistManager;
     private CommandManager commandManager;
     private LogManager logManager;
     private MessageFilter messageFilter;
     private PerformanceMonitor performanceMonitor;
+    private ChatBatcher chatBatcher;
+    private JoinQuitDigest joinQuitDigest;
     
     @Override
     public void onEnable() {
@@ -22,6 +47,7 @@ public class MCQ extends JavaPlugin {
         
         // 保存默认配置
         saveDefaultConfig();
+        settings = new Settings(getConfig());
         
         // 初始化日志管理器
         logManager = new LogManager(this);
@@ -32,6 +58,45 @@ public class MCQ extends JavaPlugin {
         // 初始化白名单管理器
         whitelistManager = new WhitelistManager(this);
         
+        // 初始化断线发件箱
+        if (getConfig().getBoolean("bot.outbox.enabled", true)) {
+            try {
+                outbox = new Outbox(this);
+                outbox.start();
+            } catch (IOException e) {
+                logManager.error("初始化发件箱失败，断线期间的消息将被丢弃", e);
+            }
+        }
+        
+        // 初始化出站消息队列
+        outboundQueue = new OutboundQueue(this, (frame, target, priority, createdAt, persistable) ->
+            connectionPool.deliver(frame, target, priority, createdAt, persistable));
+        outboundQueue.start();
+        
+        // 初始化API调用跟踪器
+        apiCallTracker = new ApiCallTracker(this);
+        apiCallTracker.start();
+        
+        // 初始化入站消息解析器
+        inboundEventParser = new InboundEventParser(groupId -> settings.isBridgedGroup(groupId));
+        
+        // 初始化入站事件分发器
+        eventDispatcher = new EventDispatcher(this);
+        
+        // 初始化入站消息去重
+        if (getConfig().getBoolean("bot.dedup.enabled", true)) {
+            messageDeduplicator = new MessageDeduplicator(
+                getConfig().getInt("bot.dedup.capacity", 4096),
+                getConfig().getLong("bot.dedup.ttl", 300));
+        }
+        
+        // 初始化消息段渲染器
+        segmentRenderer = new SegmentRenderer();
+        
+        // 初始化QQ消息广播收件箱
+        broadcastInbox = new BroadcastInbox(this);
+        broadcastInbox.start();
+        
         // 初始化机器人客户端
         initBotClient();
         
@@ -41,6 +106,12 @@ public class MCQ extends JavaPlugin {
         // 初始化性能监控器
         performanceMonitor = new PerformanceMonitor(this);
         
+        // 初始化聊天消息合并器
+        chatBatcher = new ChatBatcher(this);
+        
+        // 初始化进出服通知汇总
+        joinQuitDigest = new JoinQuitDigest(this);
+        
         // 注册事件监听器
         getServer().getPluginManager().registerEvents(new MinecraftEventListener(this), this);
         
@@ -52,8 +123,40 @@ public class MCQ extends JavaPlugin {
     
     @Override
     public void onDisable() {
-        if (botClient != null) {
-            botClient.disconnect();
+        // 先停止分发入站事件，并等待仍在处理的事件完成，它们产生的回复需要经出站队列发出
+        if (eventDispatcher != null) {
+            eventDispatcher.shutdown(getConfig().getLong("bot.dispatch.shutdown-timeout", 3000));
+        }
+        // 发送尚未合并完成的聊天消息
+        if (chatBatcher != null) {
+            chatBatcher.flushAll();
+        }
+        if (joinQuitDigest != null) {
+            joinQuitDigest.flush();
+        }
+        if (broadcastInbox != null) {
+            broadcastInbox.stop();
+            broadcastInbox.flush();
+        }
+        // 在截止时间内发送完队列中剩余的消息
+        if (outboundQueue != null) {
+            outboundQueue.shutdown(getConfig().getLong("bot.send-queue.shutdown-timeout", 3000));
+        }
+        if (apiCallTracker != null) {
+            apiCallTracker.stop();
+        }
+        if (outbox != null) {
+            outbox.close();
+        }
+        if (connectionPool != null) {
+            connectionPool.shutdown();
+        }
+        if (messageFilter != null) {
+            messageFilter.shutdown();
+        }
+        // 保存尚未写入的白名单修改，须在事件处理结束后进行，避免遗漏仍在处理的绑定请求
+        if (whitelistManager != null) {
+            whitelistManager.shutdown();
         }
         if (performanceMonitor != null) {
             performanceMonitor.stop();
@@ -64,6 +167,8 @@ public class MCQ extends JavaPlugin {
     @Override
     public void reloadConfig() {
         super.reloadConfig();
+        // 先发布新的配置快照，再通知各模块重载
+        settings = new Settings(getConfig());
         if (logManager != null) {
             logManager.reloadConfig();
         }
@@ -76,23 +181,59 @@ public class MCQ extends JavaPlugin {
         if (performanceMonitor != null) {
             performanceMonitor.reload();
         }
+        if (chatBatcher != null) {
+            chatBatcher.reload();
+        }
+        if (joinQuitDigest != null) {
+            joinQuitDigest.reload();
+        }
     }
     
     private void initBotClient() {
-        FileConfiguration config = getConfig();
-        String wsUrl = config.getString("bot.ws-url", "ws://localhost:6700");
-        botClient = new BotClient(this, wsUrl);
-        botClient.connect();
+        botClient = new BotClient(this);
+        connectionPool = new ConnectionPool(this);
+        connectionPool.start();
     }
     
     public static MCQ getInstance() {
         return instance;
     }
     
+    /**
+     * 当前配置快照，重载配置时整体替换
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+    
     public BotClient getBotClient() {
         return botClient;
     }
     
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+    
+    public OutboundQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+    
+    public ApiCallTracker getApiCallTracker() {
+        return apiCallTracker;
+    }
+    
+    public InboundEventParser getInboundEventParser() {
+        return inboundEventParser;
+    }
+    
+    public EventDispatcher getEventDispatcher() {
+        return eventDispatcher;
+    }
+    
+    public Outbox getOutbox() {
+        return outbox;
+    }
+    
     public WhitelistManager getWhitelistManager() {
         return whitelistManager;
     }
@@ -112,4 +253,24 @@ public class MCQ extends JavaPlugin {
     public PerformanceMonitor getPerformanceMonitor() {
         return performanceMonitor;
     }
+    
+    public MessageDeduplicator getMessageDeduplicator() {
+        return messageDeduplicator;
+    }
+    
+    public SegmentRenderer getSegmentRenderer() {
+        return segmentRenderer;
+    }
+    
+    public BroadcastInbox getBroadcastInbox() {
+        return broadcastInbox;
+    }
+    
+    public ChatBatcher getChatBatcher() {
+        return chatBatcher;
+    }
+    
+    public JoinQuitDigest getJoinQuitDigest() {
+        return joinQuitDigest;
+    }
 } 
\ No newline at end of file
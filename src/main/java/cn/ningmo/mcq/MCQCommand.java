@@ -5,6 +5,27 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.Map;
+
+import cn.ningmo.mcq.filter.FilterChain;
+import cn.ningmo.mcq.filter.FilterDirection;
+import cn.ningmo.mcq.filter.MessageDeduplicator;
+import cn.ningmo.mcq.filter.MessageFilter;
+import cn.ningmo.mcq.filter.RateLimiter;
+import cn.ningmo.mcq.message.BroadcastInbox;
+import cn.ningmo.mcq.monitor.LatencyHistogram;
+import cn.ningmo.mcq.network.ApiCallTracker;
+import cn.ningmo.mcq.network.BotConnection;
+import cn.ningmo.mcq.network.CompressionStats;
+import cn.ningmo.mcq.network.ConnectionInfo;
+import cn.ningmo.mcq.network.ConnectionPool;
+import cn.ningmo.mcq.network.ConnectionSupervisor;
+import cn.ningmo.mcq.network.EventDispatcher;
+import cn.ningmo.mcq.network.InboundEventParser;
+import cn.ningmo.mcq.network.Outbox;
+import cn.ningmo.mcq.network.OutboundQueue;
+import cn.ningmo.mcq.network.Priority;
+
 public class MCQCommand implements CommandExecutor {
     private final MCQ plugin;
     
@@ -18,6 +39,7 @@ public class MCQCommand implements CommandExecutor {
             sender.sendMessage("§b[MCQ] §f命令帮助：");
             sender.sendMessage("§f/mcq reload - 重载配置文件");
             sender.sendMessage("§f/mcq verify <验证码> - 完成QQ绑定验证");
+            sender.sendMessage("§f/mcq stats - 查看消息转发统计");
             return true;
         }
         
@@ -32,6 +54,16 @@ public class MCQCommand implements CommandExecutor {
             return true;
         }
         
+        if (args[0].equalsIgnoreCase("stats")) {
+            if (!sender.hasPermission("mcq.admin")) {
+                sender.sendMessage("§c你没有权限执行此命令！");
+                return true;
+            }
+            
+            sendStats(sender);
+            return true;
+        }
+        
         if (args[0].equalsIgnoreCase("verify")) {
             if (!(sender instanceof Player)) {
                 sender.sendMessage("§c此命令只能由玩家执行！");
@@ -50,4 +82,122 @@ public class MCQCommand implements CommandExecutor {
         
         return false;
     }
+    
+    private void sendStats(CommandSender sender) {
+        sender.sendMessage("§b[MCQ] §f消息转发统计：");
+        
+        ConnectionPool pool = plugin.getConnectionPool();
+        ConnectionSupervisor supervisor = pool.getSupervisor();
+        sender.sendMessage(String.format(
+            "§f连接池: 可用 %d/%d, 故障切换 %d, 无可用连接 %d, 重连 %d, 心跳超时 %d",
+            pool.getHealthyCount(), pool.getConnections().size(), pool.getFailovers(), pool.getUnroutable(),
+            supervisor.getReconnects(), supervisor.getHeartbeatTimeouts()
+        ));
+        sender.sendMessage("§f  心跳往返: " + supervisor.getRtt().summary());
+        for (BotConnection connection : pool.getConnections()) {
+            ConnectionInfo info = connection.getInfo();
+            sender.sendMessage(String.format(
+                "§f  %s: %s%s§f, 账号 %d, 群 %s, 收 %d, 发 %d, 连接次数 %d, 往返 p50=%.1fms p99=%.1fms",
+                info.getName(), connection.isHealthy() ? "§a" : "§c", info.getState().getDisplayName(), info.getSelfId(),
+                info.getGroups() != null ? String.valueOf(info.getGroups().size()) : "?",
+                info.getFramesIn(), info.getFramesOut(), info.getConnects(),
+                info.getRtt().getPercentileMillis(50), info.getRtt().getPercentileMillis(99)
+            ));
+        }
+        
+        CompressionStats compression = pool.getCompressionStats();
+        if (compression != null) {
+            sender.sendMessage(String.format(
+                "§f压缩: 发送 %d -> %d字节 (%.0f%%), 接收 %d -> %d字节 (%.0f%%)",
+                compression.getRawOut(), compression.getWireOut(), compression.getOutRatio() * 100,
+                compression.getWireIn(), compression.getRawIn(), compression.getInRatio() * 100
+            ));
+        }
+        
+        OutboundQueue queue = plugin.getOutboundQueue();
+        sender.sendMessage(String.format(
+            "§f发送队列: 积压 %d, 入队 %d, 已发送 %d, 丢弃 %d, 失败 %d (%s)",
+            queue.getDepth(), queue.getEnqueued(), queue.getSent(),
+            queue.getDropped(), queue.getFailed(), queue.getOverflowPolicy()
+        ));
+        for (Priority priority : Priority.values()) {
+            sender.sendMessage(String.format(
+                "§f  %s: 积压 %d, 丢弃 %d",
+                priority, queue.getDepth(priority), queue.getDropped(priority)
+            ));
+        }
+        sender.sendMessage(String.format(
+            "§f排队延迟: 平均 %.1fms, 最大 %.1fms",
+            queue.getAverageLatencyMillis(), queue.getMaxLatencyMillis()
+        ));
+        
+        Outbox outbox = plugin.getOutbox();
+        if (outbox != null) {
+            sender.sendMessage(String.format(
+                "§f发件箱: 待发送 %d字节, 已保存 %d, 已重发 %d, 过期 %d, 溢出 %d",
+                outbox.getPendingBytes(), outbox.getStored(), outbox.getReplayed(),
+                outbox.getExpired(), outbox.getOverflowed()
+            ));
+        }
+        
+        InboundEventParser parser = plugin.getInboundEventParser();
+        sender.sendMessage(String.format(
+            "§f入站消息: 收到 %d, 预解析丢弃 %d",
+            parser.getReceived(), parser.getDropped()
+        ));
+        
+        EventDispatcher dispatcher = plugin.getEventDispatcher();
+        sender.sendMessage(String.format(
+            "§f事件处理(%s): 积压 %d, 最大积压 %d, 已处理 %d, 丢弃 %d",
+            dispatcher.isVirtualThreads() ? "虚拟线程" : "线程池",
+            dispatcher.getPending(), dispatcher.getMaxDepth(), dispatcher.getHandled(), dispatcher.getRejected()
+        ));
+        sender.sendMessage("§f  排队: " + dispatcher.getWaitTime().summary());
+        sender.sendMessage("§f  处理: " + dispatcher.getHandlingTime().summary());
+        
+        MessageDeduplicator deduplicator = plugin.getMessageDeduplicator();
+        if (deduplicator != null) {
+            sender.sendMessage(String.format(
+                "§f消息去重: 容量 %d, 已检查 %d, 重复 %d",
+                deduplicator.getCapacity(), deduplicator.getChecked(), deduplicator.getDuplicates()
+            ));
+        }
+        
+        MessageFilter filter = plugin.getMessageFilter();
+        RateLimiter senderLimiter = filter.getSenderLimiter();
+        RateLimiter groupLimiter = filter.getGroupLimiter();
+        sender.sendMessage(String.format(
+            "§f速率限制: 活跃用户 %d, 用户限流 %d, 活跃群 %d, 群限流 %d, 已清理 %d",
+            senderLimiter.getTracked(), senderLimiter.getRejected(),
+            groupLimiter.getTracked(), groupLimiter.getRejected(),
+            senderLimiter.getEvicted() + groupLimiter.getEvicted()
+        ));
+        for (FilterDirection direction : FilterDirection.values()) {
+            FilterChain chain = filter.getChain(direction);
+            sender.sendMessage("§f过滤链 " + direction.getConfigKey() + (chain.isEnabled() ? ":" : ": 已关闭"));
+            for (FilterChain.StageStats stage : chain.getStats()) {
+                sender.sendMessage(String.format(
+                    "§f  %s%s: 调用 %d, 拒绝 %d, 平均 %dns, 最大 %dns",
+                    stage.getName(), stage.isActive() ? "" : "(禁用)",
+                    stage.getInvocations(), stage.getRejections(), stage.getMeanNanos(), stage.getMaxNanos()
+                ));
+            }
+        }
+        
+        BroadcastInbox inbox = plugin.getBroadcastInbox();
+        sender.sendMessage(String.format(
+            "§fQQ消息广播: 待广播 %d, 已广播 %d, 丢弃 %d, 单tick最多 %d, 超出预算 %d tick",
+            inbox.getPending(), inbox.getBroadcast(), inbox.getDropped(),
+            inbox.getMaxPerTick(), inbox.getDeferredTicks()
+        ));
+        
+        ApiCallTracker tracker = plugin.getApiCallTracker();
+        sender.sendMessage(String.format(
+            "§fAPI调用: 等待响应 %d, 失败 %d, 超时 %d",
+            tracker.getPendingCount(), tracker.getFailures(), tracker.getTimeouts()
+        ));
+        for (Map.Entry<String, LatencyHistogram> entry : tracker.getLatencies().entrySet()) {
+            sender.sendMessage("§f  " + entry.getKey() + ": " + entry.getValue().summary());
+        }
+    }
 } 
\ No newline at end of file
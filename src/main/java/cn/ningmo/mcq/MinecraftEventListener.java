@@ -11,8 +11,17 @@ import org.bukkit.entity.Player;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
+import cn.ningmo.mcq.config.Settings;
 import cn.ningmo.mcq.event.PlayerBindSuccessEvent;
+import cn.ningmo.mcq.filter.FilterDirection;
+import cn.ningmo.mcq.filter.MessageFilter;
+import cn.ningmo.mcq.message.ChatBatcher;
+import cn.ningmo.mcq.message.JoinQuitDigest;
+import cn.ningmo.mcq.message.MessageTemplate;
+import cn.ningmo.mcq.message.MessageTemplate.Placeholder;
+import cn.ningmo.mcq.network.Priority;
 
 public class MinecraftEventListener implements Listener {
     private final MCQ plugin;
@@ -26,17 +35,35 @@ public class MinecraftEventListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerChat(AsyncPlayerChatEvent event) {
         try {
-            String format = plugin.getConfig().getString("message-format.mc-to-qq", "[MC] {player}: {message}");
-            String message = format
-                .replace("{player}", event.getPlayer().getName())
-                .replace("{message}", event.getMessage());
+            // 过滤聊天内容，发送者以玩家UUID区分
+            UUID uuid = event.getPlayer().getUniqueId();
+            MessageFilter.FilterResult filterResult = plugin.getMessageFilter().filter(FilterDirection.MC_TO_QQ,
+                event.getMessage(), false, 0L, uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits());
+            if (!filterResult.isAllowed()) {
+                plugin.getLogManager().debug("未转发MC消息（" + filterResult.getMessage() + "）: " + event.getPlayer().getName());
+                return;
+            }
+            
+            Settings settings = plugin.getSettings();
+            MessageTemplate template = settings.getMcToQqTemplate();
+            MessageTemplate.Values values = playerValues(template, event.getPlayer())
+                .set(Placeholder.MESSAGE, filterResult.getMessage());
+            // 模板不含群号时所有群共用同一条消息
+            boolean perGroup = template.uses(Placeholder.GROUP);
+            String message = perGroup ? null : template.render(values);
                 
             if (plugin.getLogManager().isMessagesEnabled()) {
                 plugin.getLogManager().message("MC消息转发: " + event.getPlayer().getName() + " -> " + event.getMessage());
             }
             
-            for (Long groupId : plugin.getConfig().getLongList("bot.groups")) {
-                plugin.getBotClient().sendGroupMessage(groupId, message);
+            ChatBatcher batcher = plugin.getChatBatcher();
+            for (long groupId : settings.getGroups()) {
+                String groupMessage = perGroup ? template.render(values.set(Placeholder.GROUP, groupId)) : message;
+                if (batcher.isEnabled()) {
+                    batcher.add(groupId, groupMessage);
+                } else {
+                    plugin.getBotClient().sendGroupMessage(groupId, groupMessage, Priority.NORMAL);
+                }
             }
         } catch (Exception e) {
             plugin.getLogManager().error("转发MC消息到QQ时发生错误", e);
@@ -46,18 +73,20 @@ public class MinecraftEventListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
         try {
-            String message = "§a+ §f" + event.getPlayer().getName() + " 加入了服务器";
-            
             // 发送到QQ群
-            for (Long groupId : plugin.getConfig().getLongList("bot.groups")) {
-                plugin.getBotClient().sendGroupMessage(groupId, message);
+            JoinQuitDigest digest = plugin.getJoinQuitDigest();
+            if (digest.isEnabled()) {
+                digest.playerJoined(event.getPlayer().getName());
+            } else {
+                broadcastNotice(plugin.getSettings().getJoinTemplate(), event.getPlayer());
             }
             
             Player player = event.getPlayer();
             String playerName = player.getName();
             
             // 检查是否启用强制绑定
-            if (!plugin.getConfig().getBoolean("whitelist.force-bind.enabled", true)) {
+            Settings settings = plugin.getSettings();
+            if (!settings.isForceBindEnabled()) {
                 return;
             }
             
@@ -67,22 +96,22 @@ public class MinecraftEventListener implements Listener {
             }
             
             // 如果不允许未绑定玩家进入，直接踢出
-            if (!plugin.getConfig().getBoolean("whitelist.force-bind.allow-join", true)) {
-                String kickMessage = plugin.getConfig().getString("whitelist.force-bind.kick-message");
+            if (!settings.isForceBindAllowJoin()) {
+                String kickMessage = settings.getForceBindKickMessage();
                 player.kickPlayer(kickMessage);
                 return;
             }
             
             // 获取踢出延迟时间
-            int kickDelay = plugin.getConfig().getInt("whitelist.force-bind.kick-delay", 300);
+            int kickDelay = settings.getForceBindKickDelay();
             if (kickDelay > 0) {
                 // 发送提示消息
-                String joinMessage = plugin.getConfig().getString("whitelist.force-bind.join-message")
+                String joinMessage = settings.getForceBindJoinMessage()
                     .replace("{time}", String.valueOf(kickDelay));
                 player.sendMessage(joinMessage);
                 
                 // 设置定时提醒
-                int remindInterval = plugin.getConfig().getInt("whitelist.force-bind.remind-interval", 60);
+                int remindInterval = settings.getForceBindRemindInterval();
                 if (remindInterval > 0) {
                     BukkitTask remindTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
                         if (player.isOnline() && !plugin.getWhitelistManager().isWhitelisted(playerName)) {
@@ -100,7 +129,7 @@ public class MinecraftEventListener implements Listener {
                 // 设置延迟踢出
                 BukkitTask kickTask = plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
                     if (player.isOnline() && !plugin.getWhitelistManager().isWhitelisted(playerName)) {
-                        String kickMessage = plugin.getConfig().getString("whitelist.force-bind.kick-message");
+                        String kickMessage = plugin.getSettings().getForceBindKickMessage();
                         player.kickPlayer(kickMessage);
                     }
                     kickTasks.remove(playerName);
@@ -132,9 +161,38 @@ public class MinecraftEventListener implements Listener {
             remindTask.cancel();
         }
         
-        String message = "§c- §f" + playerName + " 离开了服务器";
-        for (Long groupId : plugin.getConfig().getLongList("bot.groups")) {
-            plugin.getBotClient().sendGroupMessage(groupId, message);
+        JoinQuitDigest digest = plugin.getJoinQuitDigest();
+        if (digest.isEnabled()) {
+            digest.playerLeft(playerName);
+        } else {
+            broadcastNotice(plugin.getSettings().getLeaveTemplate(), event.getPlayer());
+        }
+    }
+    
+    /**
+     * 填充玩家相关的占位符，开销较大的占位符只在模板用到时取值
+     */
+    private MessageTemplate.Values playerValues(MessageTemplate template, Player player) {
+        MessageTemplate.Values values = MessageTemplate.values()
+            .set(Placeholder.PLAYER, player.getName());
+        if (template.uses(Placeholder.WORLD)) {
+            values.set(Placeholder.WORLD, player.getWorld().getName());
+        }
+        if (template.uses(Placeholder.TIME)) {
+            values.set(Placeholder.TIME, MessageTemplate.currentTime());
+        }
+        return values;
+    }
+    
+    private void broadcastNotice(MessageTemplate template, Player player) {
+        MessageTemplate.Values values = playerValues(template, player);
+        if (!template.uses(Placeholder.GROUP)) {
+            plugin.getBotClient().broadcastGroupMessage(template.render(values), Priority.LOW);
+            return;
+        }
+        for (long groupId : plugin.getSettings().getGroups()) {
+            String message = template.render(values.set(Placeholder.GROUP, groupId));
+            plugin.getBotClient().sendGroupMessage(groupId, message, Priority.LOW);
         }
     }
     
@@ -1,35 +1,38 @@
 package cn.ningmo.mcq;
 
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.event.Event;
 import org.bukkit.event.HandlerList;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import cn.ningmo.mcq.event.PlayerBindSuccessEvent;
+import cn.ningmo.mcq.network.Priority;
+import cn.ningmo.mcq.whitelist.BindingIndex;
+import cn.ningmo.mcq.whitelist.BindingIndex.Binding;
+import cn.ningmo.mcq.whitelist.BindingStore;
 
 public class WhitelistManager {
     private final MCQ plugin;
-    private final File whitelistFile;
-    private FileConfiguration whitelistConfig;
-    private final Map<String, VerifyCode> pendingVerifications = new HashMap<>();
+    // 绑定关系索引，whitelist.yml只用于保存
+    private final BindingIndex bindings = new BindingIndex();
+    // 延迟写入的持久化存储
+    private final BindingStore store;
+    private final Map<String, VerifyCode> pendingVerifications = new ConcurrentHashMap<>();
     
     public WhitelistManager(MCQ plugin) {
         this.plugin = plugin;
-        this.whitelistFile = new File(plugin.getDataFolder(), "whitelist.yml");
-        loadWhitelist();
+        this.store = new BindingStore(plugin, bindings);
+        store.load();
+        store.start();
     }
     
-    private void loadWhitelist() {
-        if (!whitelistFile.exists()) {
-            plugin.saveResource("whitelist.yml", false);
-        }
-        whitelistConfig = YamlConfiguration.loadConfiguration(whitelistFile);
+    /**
+     * 保存未写入的修改，由插件关闭时调用
+     */
+    public void shutdown() {
+        store.close();
     }
     
     private static class VerifyCode {
@@ -49,8 +52,8 @@ public class WhitelistManager {
     }
     
     public void handleBindRequest(long qqId, String playerName, long groupId) {
-        if (!plugin.getConfig().getBoolean("whitelist.enabled")) {
-            plugin.getBotClient().sendGroupMessage(groupId, "白名单系统未启用");
+        if (!plugin.getSettings().isWhitelistEnabled()) {
+            plugin.getBotClient().sendGroupMessage(groupId, "白名单系统未启用", Priority.HIGH);
             return;
         }
         
@@ -82,7 +85,7 @@ public class WhitelistManager {
         
         // 发送提示到QQ群
         String message = plugin.getConfig().getString("whitelist.messages.verify-sent");
-        plugin.getBotClient().sendGroupMessage(groupId, message);
+        plugin.getBotClient().sendGroupMessage(groupId, message, Priority.HIGH);
     }
     
     private String generateVerifyCode() {
@@ -103,7 +106,7 @@ public class WhitelistManager {
         }
     }
     
-    public void handleVerifyCommand(String playerName, String code) {
+    public synchronized void handleVerifyCommand(String playerName, String code) {
         VerifyCode verifyCode = pendingVerifications.get(playerName.toLowerCase());
         if (verifyCode == null) {
             plugin.getServer().getPlayer(playerName).sendMessage("§c[MCQ] §f请先在QQ群中申请绑定！");
@@ -122,120 +125,105 @@ public class WhitelistManager {
         }
         
         // 验证成功，执行绑定
-        whitelistConfig.set("players." + playerName, String.valueOf(verifyCode.qqId));
-        try {
-            whitelistConfig.save(whitelistFile);
-            
-            // 通知事件监听器绑定成功
-            notifyBindSuccess(playerName);
-            
-            plugin.getServer().getPlayer(playerName).sendMessage("§a[MCQ] §f绑定成功！");
-            
-            // 添加到服务器白名单
-            plugin.getServer().dispatchCommand(
-                plugin.getServer().getConsoleSender(),
-                "whitelist add " + playerName
-            );
-            
-            // 通知QQ群
-            for (Long groupId : plugin.getConfig().getLongList("bot.groups")) {
-                plugin.getBotClient().sendGroupMessage(groupId, 
-                    "玩家 " + playerName + " 已完成白名单绑定！");
-            }
-        } catch (IOException e) {
-            plugin.getLogger().severe("保存白名单数据时发生错误: " + e.getMessage());
-            plugin.getServer().getPlayer(playerName).sendMessage("§c[MCQ] §f绑定失败，请联系管理员");
-        }
+        bind(playerName, verifyCode.qqId);
+        
+        // 通知事件监听器绑定成功
+        notifyBindSuccess(playerName);
+        
+        plugin.getServer().getPlayer(playerName).sendMessage("§a[MCQ] §f绑定成功！");
+        
+        // 添加到服务器白名单
+        plugin.getServer().dispatchCommand(
+            plugin.getServer().getConsoleSender(),
+            "whitelist add " + playerName
+        );
+        
+        // 通知QQ群
+        plugin.getBotClient().broadcastGroupMessage(
+            "玩家 " + playerName + " 已完成白名单绑定！", Priority.NORMAL);
         
         pendingVerifications.remove(playerName.toLowerCase());
     }
     
-    private void handleDirectBind(long qqId, String playerName, long groupId) {
+    private synchronized void handleDirectBind(long qqId, String playerName, long groupId) {
         // 检查玩家名是否已被绑定
-        String boundQQ = whitelistConfig.getString("players." + playerName);
-        if (boundQQ != null) {
-            if (boundQQ.equals(String.valueOf(qqId))) {
-                plugin.getBotClient().sendGroupMessage(groupId, "你已经绑定了这个游戏ID");
+        Binding bound = bindings.get(playerName);
+        if (bound != null) {
+            if (bound.getQqId() == qqId) {
+                plugin.getBotClient().sendGroupMessage(groupId, "你已经绑定了这个游戏ID", Priority.HIGH);
             } else {
-                plugin.getBotClient().sendGroupMessage(groupId, "该游戏ID已被其他QQ号绑定");
+                plugin.getBotClient().sendGroupMessage(groupId, "该游戏ID已被其他QQ号绑定", Priority.HIGH);
             }
             return;
         }
         
         // 添加QQ号绑定限制
         int maxBindings = plugin.getConfig().getInt("whitelist.max-bindings-per-qq", 1);
-        int currentBindings = 0;
-        
-        // 添加空值检查
-        if (whitelistConfig.getConfigurationSection("players") != null) {
-            for (String key : whitelistConfig.getConfigurationSection("players").getKeys(false)) {
-                if (whitelistConfig.getString("players." + key).equals(String.valueOf(qqId))) {
-                    currentBindings++;
-                }
-            }
-        }
-        
-        if (currentBindings >= maxBindings) {
-            plugin.getBotClient().sendGroupMessage(groupId, "你已达到最大绑定数量限制！");
+        if (bindings.countByQQ(qqId) >= maxBindings) {
+            plugin.getBotClient().sendGroupMessage(groupId, "你已达到最大绑定数量限制！", Priority.HIGH);
             return;
         }
         
         // 保存绑定关系
-        whitelistConfig.set("players." + playerName, String.valueOf(qqId));
-        try {
-            whitelistConfig.save(whitelistFile);
-            plugin.getBotClient().sendGroupMessage(groupId, "绑定成功！");
-            
-            // 添加到服务器白名单
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                plugin.getServer().dispatchCommand(
-                    plugin.getServer().getConsoleSender(),
-                    "whitelist add " + playerName
-                );
-            });
-        } catch (IOException e) {
-            plugin.getLogger().severe("保存白名单数据时发生错误: " + e.getMessage());
-            plugin.getBotClient().sendGroupMessage(groupId, "绑定失败，请联系管理员");
-        }
+        bind(playerName, qqId);
+        plugin.getBotClient().sendGroupMessage(groupId, "绑定成功！", Priority.HIGH);
+        
+        // 添加到服务器白名单
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            plugin.getServer().dispatchCommand(
+                plugin.getServer().getConsoleSender(),
+                "whitelist add " + playerName
+            );
+        });
+    }
+    
+    /**
+     * 更新索引并记录到日志，whitelist.yml由后台任务保存
+     */
+    private void bind(String playerName, long qqId) {
+        bindings.put(playerName, qqId);
+        store.recordBind(playerName, qqId);
     }
     
+    /**
+     * 查询索引，不需要获取白名单管理器的锁
+     */
     public boolean isWhitelisted(String playerName) {
-        if (!plugin.getConfig().getBoolean("whitelist.enabled")) {
+        if (!plugin.getSettings().isWhitelistEnabled()) {
             return true;
         }
-        return whitelistConfig.contains("players." + playerName);
+        return bindings.contains(playerName);
+    }
+    
+    public BindingIndex getBindings() {
+        return bindings;
     }
     
     // 添加解绑功能
-    public void handleUnbindRequest(long qqId, String playerName, long groupId) {
-        String boundQQ = whitelistConfig.getString("players." + playerName);
+    public synchronized void handleUnbindRequest(long qqId, String playerName, long groupId) {
+        Binding bound = bindings.get(playerName);
         
-        if (boundQQ == null) {
-            plugin.getBotClient().sendGroupMessage(groupId, "该游戏ID未绑定白名单");
+        if (bound == null) {
+            plugin.getBotClient().sendGroupMessage(groupId, "该游戏ID未绑定白名单", Priority.HIGH);
             return;
         }
         
-        if (!boundQQ.equals(String.valueOf(qqId))) {
-            plugin.getBotClient().sendGroupMessage(groupId, "你没有权限解绑该游戏ID");
+        if (bound.getQqId() != qqId) {
+            plugin.getBotClient().sendGroupMessage(groupId, "你没有权限解绑该游戏ID", Priority.HIGH);
             return;
         }
         
-        whitelistConfig.set("players." + playerName, null);
-        try {
-            whitelistConfig.save(whitelistFile);
-            plugin.getBotClient().sendGroupMessage(groupId, "解绑成功！");
-            
-            // 从服务器白名单移除
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                plugin.getServer().dispatchCommand(
-                    plugin.getServer().getConsoleSender(),
-                    "whitelist remove " + playerName
-                );
-            });
-        } catch (IOException e) {
-            plugin.getLogger().severe("保存白名单数据时发生错误: " + e.getMessage());
-            plugin.getBotClient().sendGroupMessage(groupId, "解绑失败，请联系管理员");
-        }
+        bindings.remove(playerName);
+        store.recordUnbind(bound.getPlayerName());
+        plugin.getBotClient().sendGroupMessage(groupId, "解绑成功！", Priority.HIGH);
+        
+        // 从服务器白名单移除
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            plugin.getServer().dispatchCommand(
+                plugin.getServer().getConsoleSender(),
+                "whitelist remove " + playerName
+            );
+        });
     }
 
     private void notifyBindSuccess(String playerName) {
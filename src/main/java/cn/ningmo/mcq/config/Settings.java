@@ -0,0 +1,130 @@
+package cn.ningmo.mcq.config;
+
+import cn.ningmo.mcq.message.MessageTemplate;
+import cn.ningmo.mcq.util.LongHashSet;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 不可变的配置快照，在加载和重载配置时构建一次，
+ * 热点路径通过它读取配置，避免每次事件都查询YAML并分配装箱列表。
+ */
+public final class Settings {
+    // 机器人
+    private final long[] groups;
+    private final LongHashSet groupSet;
+    private final LongHashSet adminSet;
+    private final long apiTimeoutMillis;
+
+    // 消息格式
+    private final MessageTemplate qqToMcTemplate;
+    private final MessageTemplate mcToQqTemplate;
+    private final MessageTemplate joinTemplate;
+    private final MessageTemplate leaveTemplate;
+
+    // QQ消息广播
+    private final long broadcastTickBudgetNanos;
+    private final int broadcastMaxPending;
+
+    // 聊天合并与进出服汇总
+    private final boolean chatBatchEnabled;
+    private final long chatBatchWindowMillis;
+    private final int chatBatchMaxLines;
+    private final int chatBatchMaxLength;
+    private final boolean joinQuitDigestEnabled;
+    private final long joinQuitDigestWindowSeconds;
+    private final int joinQuitDigestMaxNames;
+
+    // 状态命令
+    private final long statusCooldownMillis;
+    private final boolean statusShowTps;
+    private final boolean statusShowMemory;
+    private final boolean statusShowPlayerList;
+
+    // 白名单
+    private final boolean whitelistEnabled;
+    private final boolean forceBindEnabled;
+    private final boolean forceBindAllowJoin;
+    private final int forceBindKickDelay;
+    private final int forceBindRemindInterval;
+    private final String forceBindKickMessage;
+    private final String forceBindJoinMessage;
+
+    public Settings(FileConfiguration config) {
+        List<Long> groupList = config.getLongList("bot.groups");
+        Set<Long> uniqueGroups = new LinkedHashSet<>(groupList);
+        this.groups = uniqueGroups.stream().mapToLong(Long::longValue).toArray();
+        this.groupSet = new LongHashSet(uniqueGroups);
+        this.adminSet = new LongHashSet(config.getLongList("bot.admins"));
+        this.apiTimeoutMillis = config.getLong("bot.api.timeout", 10) * 1000;
+
+        this.qqToMcTemplate = MessageTemplate.compile(config.getString("message-format.qq-to-mc", "§b[QQ] §f{sender}: {message}"));
+        this.mcToQqTemplate = MessageTemplate.compile(config.getString("message-format.mc-to-qq", "[MC] {player}: {message}"));
+        this.joinTemplate = MessageTemplate.compile(config.getString("message-format.join", "§a+ §f{player} 加入了服务器"));
+        this.leaveTemplate = MessageTemplate.compile(config.getString("message-format.leave", "§c- §f{player} 离开了服务器"));
+
+        this.broadcastTickBudgetNanos = (long) (Math.max(0, config.getDouble("qq-broadcast.tick-budget", 2.0)) * 1_000_000);
+        this.broadcastMaxPending = Math.max(1, config.getInt("qq-broadcast.max-pending", 1000));
+
+        this.chatBatchEnabled = config.getBoolean("chat-batch.enabled", false);
+        this.chatBatchWindowMillis = Math.max(1, config.getLong("chat-batch.window", 500));
+        this.chatBatchMaxLines = Math.max(1, config.getInt("chat-batch.max-lines", 10));
+        this.chatBatchMaxLength = Math.max(1, config.getInt("chat-batch.max-length", 1000));
+        this.joinQuitDigestEnabled = config.getBoolean("join-quit-digest.enabled", false);
+        this.joinQuitDigestWindowSeconds = Math.max(1, config.getLong("join-quit-digest.window", 60));
+        this.joinQuitDigestMaxNames = Math.max(0, config.getInt("join-quit-digest.max-names", 10));
+
+        this.statusCooldownMillis = config.getLong("status.cooldown", 30) * 1000;
+        this.statusShowTps = config.getBoolean("status.show-tps", true);
+        this.statusShowMemory = config.getBoolean("status.show-memory", true);
+        this.statusShowPlayerList = config.getBoolean("status.show-player-list", true);
+
+        this.whitelistEnabled = config.getBoolean("whitelist.enabled");
+        this.forceBindEnabled = config.getBoolean("whitelist.force-bind.enabled", true);
+        this.forceBindAllowJoin = config.getBoolean("whitelist.force-bind.allow-join", true);
+        this.forceBindKickDelay = config.getInt("whitelist.force-bind.kick-delay", 300);
+        this.forceBindRemindInterval = config.getInt("whitelist.force-bind.remind-interval", 60);
+        this.forceBindKickMessage = config.getString("whitelist.force-bind.kick-message");
+        this.forceBindJoinMessage = config.getString("whitelist.force-bind.join-message");
+    }
+
+    /**
+     * 配置的互通群号，按配置顺序排列，调用方不应修改返回的数组
+     */
+    public long[] getGroups() { return groups; }
+    public boolean isBridgedGroup(long groupId) { return groupSet.contains(groupId); }
+    public boolean isAdmin(long userId) { return adminSet.contains(userId); }
+    public long getApiTimeoutMillis() { return apiTimeoutMillis; }
+
+    public MessageTemplate getQqToMcTemplate() { return qqToMcTemplate; }
+    public MessageTemplate getMcToQqTemplate() { return mcToQqTemplate; }
+    public MessageTemplate getJoinTemplate() { return joinTemplate; }
+    public MessageTemplate getLeaveTemplate() { return leaveTemplate; }
+
+    public long getBroadcastTickBudgetNanos() { return broadcastTickBudgetNanos; }
+    public int getBroadcastMaxPending() { return broadcastMaxPending; }
+
+    public boolean isChatBatchEnabled() { return chatBatchEnabled; }
+    public long getChatBatchWindowMillis() { return chatBatchWindowMillis; }
+    public int getChatBatchMaxLines() { return chatBatchMaxLines; }
+    public int getChatBatchMaxLength() { return chatBatchMaxLength; }
+    public boolean isJoinQuitDigestEnabled() { return joinQuitDigestEnabled; }
+    public long getJoinQuitDigestWindowSeconds() { return joinQuitDigestWindowSeconds; }
+    public int getJoinQuitDigestMaxNames() { return joinQuitDigestMaxNames; }
+
+    public long getStatusCooldownMillis() { return statusCooldownMillis; }
+    public boolean isStatusShowTps() { return statusShowTps; }
+    public boolean isStatusShowMemory() { return statusShowMemory; }
+    public boolean isStatusShowPlayerList() { return statusShowPlayerList; }
+
+    public boolean isWhitelistEnabled() { return whitelistEnabled; }
+    public boolean isForceBindEnabled() { return forceBindEnabled; }
+    public boolean isForceBindAllowJoin() { return forceBindAllowJoin; }
+    public int getForceBindKickDelay() { return forceBindKickDelay; }
+    public int getForceBindRemindInterval() { return forceBindRemindInterval; }
+    public String getForceBindKickMessage() { return forceBindKickMessage; }
+    public String getForceBindJoinMessage() { return forceBindJoinMessage; }
+}
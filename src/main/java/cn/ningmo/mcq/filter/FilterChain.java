@@ -0,0 +1,154 @@
+package cn.ningmo.mcq.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个方向上的消息过滤链：按代价从小到大依次执行已启用的阶段，遇到拒绝立即返回。
+ * <p>
+ * 注册和启停阶段时重新生成不可变的执行数组，过滤时无锁遍历；
+ * 每个阶段记录调用次数、拒绝次数和纳秒级耗时。
+ */
+public final class FilterChain {
+    private final FilterDirection direction;
+    // 按注册顺序保存，排序时代价相同的阶段保持注册顺序
+    private final List<StageStats> stages = new ArrayList<>();
+    private Set<String> disabled = Collections.emptySet();
+    private boolean enabled = true;
+    private volatile StageStats[] active = new StageStats[0];
+
+    public FilterChain(FilterDirection direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * 注册过滤阶段，已有同名阶段时替换它
+     */
+    public synchronized void register(FilterStage stage) {
+        StageStats stats = new StageStats(stage);
+        for (int i = 0; i < stages.size(); i++) {
+            if (stages.get(i).getName().equals(stage.getName())) {
+                stages.set(i, stats);
+                rebuild();
+                return;
+            }
+        }
+        stages.add(stats);
+        rebuild();
+    }
+
+    public synchronized void unregister(String name) {
+        stages.removeIf(stats -> stats.getName().equals(name));
+        rebuild();
+    }
+
+    /**
+     * 设置整条链是否启用以及禁用的阶段名称，由配置重载调用
+     */
+    public synchronized void configure(boolean enabled, Set<String> disabled) {
+        this.enabled = enabled;
+        this.disabled = new HashSet<>(disabled);
+        rebuild();
+    }
+
+    private void rebuild() {
+        List<StageStats> list = new ArrayList<>();
+        if (enabled) {
+            for (StageStats stats : stages) {
+                if (!disabled.contains(stats.getName())) {
+                    list.add(stats);
+                }
+            }
+            // List.sort是稳定排序
+            list.sort(Comparator.comparingInt(StageStats::getCost));
+        }
+        active = list.toArray(new StageStats[0]);
+    }
+
+    /**
+     * 依次执行已启用的阶段
+     * @return 消息是否通过，拒绝原因和修改后的消息保存在context中
+     */
+    public boolean apply(FilterContext context) {
+        for (StageStats stats : active) {
+            long start = System.nanoTime();
+            boolean passed = stats.stage.apply(context);
+            stats.record(System.nanoTime() - start, passed);
+            if (!passed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public FilterDirection getDirection() {
+        return direction;
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 所有已注册阶段的统计，按执行顺序排列
+     */
+    public synchronized List<StageStats> getStats() {
+        List<StageStats> list = new ArrayList<>(stages);
+        list.sort(Comparator.comparingInt(StageStats::getCost));
+        return list;
+    }
+
+    /**
+     * 单个阶段及其统计数据
+     */
+    public final class StageStats {
+        private final FilterStage stage;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        StageStats(FilterStage stage) {
+            this.stage = stage;
+        }
+
+        void record(long nanos, boolean passed) {
+            invocations.increment();
+            totalNanos.add(nanos);
+            if (nanos > maxNanos.get()) {
+                maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+            if (!passed) {
+                rejections.increment();
+            }
+        }
+
+        public boolean isActive() {
+            for (StageStats stats : active) {
+                if (stats == this) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public long getMeanNanos() {
+            long count = invocations.sum();
+            return count == 0 ? 0 : totalNanos.sum() / count;
+        }
+
+        // Getters
+        public String getName() { return stage.getName(); }
+        public int getCost() { return stage.getCost(); }
+        public long getInvocations() { return invocations.sum(); }
+        public long getRejections() { return rejections.sum(); }
+        public long getTotalNanos() { return totalNanos.sum(); }
+        public long getMaxNanos() { return maxNanos.get(); }
+    }
+}
@@ -0,0 +1,46 @@
+package cn.ningmo.mcq.filter;
+
+/**
+ * 一条消息经过过滤链时的上下文，过滤阶段可以读取发送者信息、修改消息内容或拒绝消息
+ */
+public final class FilterContext {
+    private final FilterDirection direction;
+    private final boolean pureImage;
+    private final long groupId;
+    private final long senderId;
+    private String message;
+    private String rejectReason;
+
+    /**
+     * @param groupId 来源或目标群号，MC到QQ方向为0
+     * @param senderId 发送者标识，QQ到MC方向为QQ号，MC到QQ方向由玩家UUID得到
+     */
+    public FilterContext(FilterDirection direction, String message, boolean pureImage, long groupId, long senderId) {
+        this.direction = direction;
+        this.message = message;
+        this.pureImage = pureImage;
+        this.groupId = groupId;
+        this.senderId = senderId;
+    }
+
+    /**
+     * 拒绝这条消息
+     * @return 总是false，便于在过滤阶段中直接 return context.reject(...)
+     */
+    public boolean reject(String reason) {
+        this.rejectReason = reason;
+        return false;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    // Getters
+    public FilterDirection getDirection() { return direction; }
+    public String getMessage() { return message; }
+    public boolean isPureImage() { return pureImage; }
+    public long getGroupId() { return groupId; }
+    public long getSenderId() { return senderId; }
+    public String getRejectReason() { return rejectReason; }
+}
@@ -0,0 +1,24 @@
+package cn.ningmo.mcq.filter;
+
+/**
+ * 消息过滤方向，每个方向有独立的过滤链
+ */
+public enum FilterDirection {
+    /** QQ群消息转发到服务器 */
+    QQ_TO_MC("qq-to-mc"),
+    /** 服务器聊天转发到QQ群 */
+    MC_TO_QQ("mc-to-qq");
+
+    private final String configKey;
+
+    FilterDirection(String configKey) {
+        this.configKey = configKey;
+    }
+
+    /**
+     * 在 message-filter.chains 下的配置名
+     */
+    public String getConfigKey() {
+        return configKey;
+    }
+}
@@ -0,0 +1,50 @@
+package cn.ningmo.mcq.filter;
+
+import java.util.function.Predicate;
+
+/**
+ * 过滤链中的一个阶段。
+ * <p>
+ * 过滤链按 {@link #getCost()} 从小到大执行，任意阶段拒绝后不再执行后面的阶段，
+ * 因此廉价的检查（长度、空消息）应返回较小的代价，敏感词替换等逐字符处理的阶段返回较大的代价。
+ * 其他插件可以通过 {@code MCQ.getInstance().getMessageFilter().getChain(direction).register(stage)} 注册阶段。
+ */
+public interface FilterStage {
+    /**
+     * 阶段名称，同一条过滤链中唯一，也用于配置中的 disabled-stages
+     */
+    String getName();
+
+    /**
+     * 相对执行代价，越小越先执行
+     */
+    int getCost();
+
+    /**
+     * 处理一条消息，可以通过 {@link FilterContext#setMessage(String)} 修改内容
+     * @return 消息是否通过，拒绝时应调用 {@link FilterContext#reject(String)}
+     */
+    boolean apply(FilterContext context);
+
+    /**
+     * 用名称、代价和处理函数创建过滤阶段
+     */
+    static FilterStage of(String name, int cost, Predicate<FilterContext> action) {
+        return new FilterStage() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public int getCost() {
+                return cost;
+            }
+
+            @Override
+            public boolean apply(FilterContext context) {
+                return action.test(context);
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package cn.ningmo.mcq.filter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按群检测近似重复的刷屏消息。
+ * <p>
+ * 每条消息计算64位SimHash指纹（以单个字符和相邻两个字符为特征），
+ * 与该群最近若干条消息的指纹比较海明距离（popcount），
+ * 时间窗口内相似消息达到阈值时判定为刷屏。广告通常只有少量字符差异，
+ * 这样的改动只会翻转指纹中的少数几位。
+ */
+public final class FloodDetector {
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+    private final int windowSize;
+    private final long ttlNanos;
+    private final int maxDistance;
+    private final int threshold;
+    private final int minLength;
+
+    /**
+     * @param windowSize 每个群保留的最近消息数
+     * @param ttlSeconds 只和这段时间内的消息比较
+     * @param maxDistance 海明距离不超过该值视为相似
+     * @param threshold 窗口内已有这么多条相似消息时拒绝
+     * @param minLength 短于该长度的消息不检测，避免误伤“哈哈”之类的常见回复
+     */
+    public FloodDetector(int windowSize, int ttlSeconds, int maxDistance, int threshold, int minLength) {
+        this.windowSize = Math.max(1, windowSize);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+        this.maxDistance = maxDistance;
+        this.threshold = Math.max(1, threshold);
+        this.minLength = minLength;
+    }
+
+    /**
+     * 记录消息并判断是否为刷屏，被拒绝的消息同样会记录，使持续刷屏能一直被识别
+     */
+    public boolean isFlood(long groupId, String message) {
+        if (message.length() < minLength) {
+            return false;
+        }
+        long fingerprint = simHash(message);
+        long now = System.nanoTime();
+        Window window = windows.computeIfAbsent(groupId, k -> new Window(windowSize));
+        synchronized (window) {
+            int similar = 0;
+            for (int i = 0; i < window.size; i++) {
+                if (now - window.times[i] <= ttlNanos
+                        && Long.bitCount(window.fingerprints[i] ^ fingerprint) <= maxDistance) {
+                    similar++;
+                }
+            }
+            window.add(fingerprint, now);
+            return similar >= threshold;
+        }
+    }
+
+    /**
+     * 计算SimHash：只取字母和数字并统一小写，每个字符和每对相邻字符哈希后按位投票，
+     * 插入空格或标点不会改变指纹
+     */
+    static long simHash(String message) {
+        int[] votes = new int[64];
+        char previous = 0;
+        boolean hasPrevious = false;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                continue;
+            }
+            c = Character.toLowerCase(c);
+            vote(votes, mix(c));
+            if (hasPrevious) {
+                vote(votes, mix(((long) previous << 16) | c | (1L << 32)));
+            }
+            previous = c;
+            hasPrevious = true;
+        }
+
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    private static void vote(int[] votes, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            votes[bit] += ((hash >>> bit) & 1L) != 0 ? 1 : -1;
+        }
+    }
+
+    /**
+     * SplitMix64的混合函数，把特征值均匀散列到64位
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 一个群最近消息的环形缓冲区
+     */
+    private static final class Window {
+        final long[] fingerprints;
+        final long[] times;
+        int size;
+        int next;
+
+        Window(int capacity) {
+            this.fingerprints = new long[capacity];
+            this.times = new long[capacity];
+        }
+
+        void add(long fingerprint, long time) {
+            fingerprints[next] = fingerprint;
+            times[next] = time;
+            next = (next + 1) % fingerprints.length;
+            if (size < fingerprints.length) {
+                size++;
+            }
+        }
+    }
+}
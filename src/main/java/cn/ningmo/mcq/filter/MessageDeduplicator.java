@@ -0,0 +1,80 @@
+package cn.ningmo.mcq.filter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 入站消息去重窗口，按 (群号, 消息ID) 判断消息是否已经处理过。
+ * <p>
+ * 使用组相联的原始long数组：每个键只会落在一个包含 {@value #WAYS} 个槽位的组中，
+ * 组内没有空闲或过期槽位时覆盖最早写入的槽位，内存占用固定，查询最多扫描一个组。
+ */
+public class MessageDeduplicator {
+    private static final int WAYS = 8;
+
+    private final long[] keys;
+    private final long[] times;
+    private final int setMask;
+    private final long ttlNanos;
+
+    // 统计数据
+    private long checked;
+    private long duplicates;
+
+    /**
+     * @param capacity 最多记录的消息数量，向上取整为2的幂
+     * @param ttlSeconds 记录的有效期
+     */
+    public MessageDeduplicator(int capacity, long ttlSeconds) {
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS - 1)) << 1;
+        this.keys = new long[sets * WAYS];
+        this.times = new long[sets * WAYS];
+        this.setMask = sets - 1;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+    }
+
+    /**
+     * 记录一条消息
+     * @return 该消息在有效期内已经出现过时返回true
+     */
+    public synchronized boolean isDuplicate(long groupId, long messageId) {
+        checked++;
+        long key = key(groupId, messageId);
+        long now = System.nanoTime();
+
+        int base = (int) (key >>> 32 ^ key) & setMask;
+        base *= WAYS;
+        int victim = base;
+        long victimTime = Long.MAX_VALUE;
+        for (int i = base; i < base + WAYS; i++) {
+            long slot = keys[i];
+            boolean expired = slot == 0 || now - times[i] > ttlNanos;
+            if (slot == key && !expired) {
+                duplicates++;
+                return true;
+            }
+            // 优先使用空闲或过期的槽位，否则覆盖最早写入的
+            long age = expired ? Long.MIN_VALUE : times[i];
+            if (age < victimTime) {
+                victim = i;
+                victimTime = age;
+            }
+        }
+
+        keys[victim] = key;
+        times[victim] = now;
+        return false;
+    }
+
+    private static long key(long groupId, long messageId) {
+        long hash = (groupId * 0x9E3779B97F4A7C15L) ^ messageId;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        // 0 表示空槽位
+        return hash == 0 ? 1 : hash;
+    }
+
+    public int getCapacity() { return keys.length; }
+    public synchronized long getChecked() { return checked; }
+    public synchronized long getDuplicates() { return duplicates; }
+}
@@ -1,110 +1,263 @@
 package cn.ningmo.mcq.filter;
 
 import cn.ningmo.mcq.MCQ;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * 消息过滤器：每个方向一条过滤链，内置长度、空消息、纯图片、速率限制、刷屏和敏感词阶段，
+ * 其他插件可以通过 {@link #getChain(FilterDirection)} 注册自己的阶段
+ */
 public class MessageFilter {
+    // 清理空闲限流状态的间隔（1分钟）
+    private static final long EVICT_PERIOD_TICKS = 1200L;
+
+    // 内置阶段的名称和代价
+    public static final String STAGE_LENGTH = "length";
+    public static final String STAGE_EMPTY = "empty";
+    public static final String STAGE_PURE_IMAGE = "pure-image";
+    public static final String STAGE_RATE_LIMIT = "rate-limit";
+    public static final String STAGE_FLOOD = "flood";
+    public static final String STAGE_WORD_FILTER = "word-filter";
+
     private final MCQ plugin;
-    private final Map<Long, RateLimit> rateLimits = new ConcurrentHashMap<>();
-    private final Map<String, String> wordFilter = new HashMap<>();
-    private int maxLength;
-    private int rateLimit;
-    private boolean allowEmpty;
-    private boolean allowPureImage;
+    private final Map<FilterDirection, FilterChain> chains = new EnumMap<>(FilterDirection.class);
+    private final Map<FilterDirection, RateLimits> rateLimits = new EnumMap<>(FilterDirection.class);
+    private BukkitTask evictTask;
+    // 刷屏检测，关闭时为null
+    private volatile FloodDetector floodDetector;
+    // 敏感词过滤，reload时在异步线程构建后整体替换，首次构建完成前为null
+    private volatile WordFilter wordFilter;
+    // 最近一次reload提交的构建任务
+    private volatile CompletableFuture<WordFilter> pendingWordFilter;
+    // 规范化输出缓冲区，按线程复用
+    private final ThreadLocal<NormalizeBuffer> normalizeBuffers = ThreadLocal.withInitial(NormalizeBuffer::new);
+    private volatile int maxLength;
+    private volatile boolean allowEmpty;
+    private volatile boolean allowPureImage;
     private String commandPrefix;
     
     public MessageFilter(MCQ plugin) {
         this.plugin = plugin;
+        for (FilterDirection direction : FilterDirection.values()) {
+            RateLimits limits = new RateLimits();
+            rateLimits.put(direction, limits);
+            chains.put(direction, createChain(direction, limits));
+        }
         reload();
+        evictTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            for (RateLimits limits : rateLimits.values()) {
+                limits.evictIdle();
+            }
+        }, EVICT_PERIOD_TICKS, EVICT_PERIOD_TICKS);
+    }
+    
+    private FilterChain createChain(FilterDirection direction, RateLimits limits) {
+        FilterChain chain = new FilterChain(direction);
+        chain.register(FilterStage.of(STAGE_LENGTH, 10, context ->
+            context.getMessage().length() <= maxLength || context.reject("消息长度超过限制")));
+        // MC聊天不会为空，也没有图片
+        if (direction == FilterDirection.QQ_TO_MC) {
+            chain.register(FilterStage.of(STAGE_EMPTY, 20, context ->
+                allowEmpty || !context.getMessage().trim().isEmpty() || context.reject("不允许发送空消息")));
+            chain.register(FilterStage.of(STAGE_PURE_IMAGE, 30, context ->
+                allowPureImage || !context.isPureImage() || context.reject("不允许发送纯图片消息")));
+        }
+        chain.register(FilterStage.of(STAGE_RATE_LIMIT, 40, limits::apply));
+        if (direction == FilterDirection.QQ_TO_MC) {
+            chain.register(FilterStage.of(STAGE_FLOOD, 60, context -> {
+                FloodDetector detector = floodDetector;
+                return detector == null || !detector.isFlood(context.getGroupId(), context.getMessage())
+                    || context.reject("检测到刷屏");
+            }));
+        }
+        chain.register(FilterStage.of(STAGE_WORD_FILTER, 100, context -> {
+            context.setMessage(filterWords(context.getMessage()));
+            return true;
+        }));
+        return chain;
+    }
+    
+    public void shutdown() {
+        if (evictTask != null) {
+            evictTask.cancel();
+            evictTask = null;
+        }
     }
     
     public void reload() {
         maxLength = plugin.getConfig().getInt("message-filter.max-length", 500);
-        rateLimit = plugin.getConfig().getInt("message-filter.rate-limit", 60);
+        int rateLimit = plugin.getConfig().getInt("message-filter.rate-limit", 60);
+        int groupRateLimit = plugin.getConfig().getInt("message-filter.group-rate-limit", 0);
+        for (RateLimits limits : rateLimits.values()) {
+            limits.configure(rateLimit, groupRateLimit);
+        }
         allowEmpty = plugin.getConfig().getBoolean("message-filter.allow-empty", false);
         allowPureImage = plugin.getConfig().getBoolean("message-filter.allow-pure-image", true);
         commandPrefix = plugin.getConfig().getString("message-filter.command-prefix", "!");
         
-        // 加载敏感词
-        wordFilter.clear();
-        if (plugin.getConfig().getBoolean("message-filter.word-filter.enabled", true)) {
-            String replacement = plugin.getConfig().getString("message-filter.word-filter.replace-with", "*");
-            List<String> words = plugin.getConfig().getStringList("message-filter.word-filter.words");
-            for (String word : words) {
-                wordFilter.put(word, replacement.repeat(word.length()));
+        // 刷屏检测，重载时清空窗口
+        if (plugin.getConfig().getBoolean("message-filter.flood.enabled", false)) {
+            floodDetector = new FloodDetector(
+                plugin.getConfig().getInt("message-filter.flood.window", 20),
+                plugin.getConfig().getInt("message-filter.flood.ttl", 60),
+                plugin.getConfig().getInt("message-filter.flood.max-distance", 10),
+                plugin.getConfig().getInt("message-filter.flood.threshold", 3),
+                plugin.getConfig().getInt("message-filter.flood.min-length", 12)
+            );
+        } else {
+            floodDetector = null;
+        }
+        
+        // 加载敏感词：规范化表和自动机的构建较慢，放到异步线程，完成前继续使用旧的过滤器
+        String replacement = plugin.getConfig().getString("message-filter.word-filter.replace-with", "*");
+        List<String> words = plugin.getConfig().getBoolean("message-filter.word-filter.enabled", true)
+            ? plugin.getConfig().getStringList("message-filter.word-filter.words")
+            : Collections.<String>emptyList();
+        boolean ignoreCase = plugin.getConfig().getBoolean("message-filter.word-filter.ignore-case", true);
+        TextNormalizer textNormalizer = plugin.getConfig().getBoolean("message-filter.word-filter.normalize.enabled", true)
+            ? new TextNormalizer(plugin.getConfig().getBoolean("message-filter.word-filter.normalize.strip-separators", true))
+            : null;
+        // 不使用Bukkit的异步调度器：其任务要等到下一个tick才开始，主线程在此之前等待会死锁
+        CompletableFuture<WordFilter> future = CompletableFuture.supplyAsync(
+            () -> new WordFilter(words, ignoreCase, textNormalizer, replacement));
+        pendingWordFilter = future;
+        future.thenAccept(built -> {
+            // 连续重载时只发布最后一次的结果
+            if (pendingWordFilter == future) {
+                wordFilter = built;
             }
+        });
+        
+        // 各方向过滤链的启用状态和禁用的阶段
+        for (FilterChain chain : chains.values()) {
+            String path = "message-filter.chains." + chain.getDirection().getConfigKey();
+            chain.configure(plugin.getConfig().getBoolean(path + ".enabled", true),
+                new HashSet<>(plugin.getConfig().getStringList(path + ".disabled-stages")));
         }
     }
     
-    public FilterResult filter(String message, long senderId) {
-        // 检查消息长度
-        if (message.length() > maxLength) {
-            return new FilterResult(false, "消息长度超过限制");
+    /**
+     * 用对应方向的过滤链处理消息
+     * @param pureImage 消息是否只包含图片，由消息段渲染器判断
+     */
+    public FilterResult filter(FilterDirection direction, String message, boolean pureImage, long groupId, long senderId) {
+        FilterContext context = new FilterContext(direction, message, pureImage, groupId, senderId);
+        if (!chains.get(direction).apply(context)) {
+            return new FilterResult(false, context.getRejectReason());
         }
-        
-        // 检查空消息
-        if (!allowEmpty && message.trim().isEmpty()) {
-            return new FilterResult(false, "不允许发送空消息");
+        return new FilterResult(true, context.getMessage());
+    }
+    
+    private String filterWords(String message) {
+        WordFilter current = wordFilter;
+        if (current == null) {
+            // 插件刚启用，首次构建尚未完成，等待而不是放过消息
+            current = pendingWordFilter.join();
         }
-        
-        // 检查纯图片消息
-        if (!allowPureImage && message.matches("^\\[CQ:image,[^\\]]*\\]$")) {
-            return new FilterResult(false, "不允许发送纯图片消息");
+        WordMatcher matcher = current.matcher;
+        if (matcher.getWordCount() == 0) {
+            return message;
         }
-        
-        // 检查速率限制
-        if (!checkRateLimit(senderId)) {
-            return new FilterResult(false, "发送消息太快，请稍后再试");
+        if (current.normalizer == null) {
+            return matcher.replace(message, current.replacement);
         }
-        
-        // 过滤敏感词
-        String filteredMessage = filterWords(message);
-        
-        return new FilterResult(true, filteredMessage);
+        NormalizeBuffer buffer = normalizeBuffers.get();
+        int[] offsets = buffer.offsets(message.length());
+        current.normalizer.normalize(message, buffer.text, offsets);
+        return matcher.replace(message, buffer.text, offsets, current.replacement);
     }
     
-    private boolean checkRateLimit(long senderId) {
-        RateLimit limit = rateLimits.computeIfAbsent(senderId, k -> new RateLimit(rateLimit));
-        return limit.tryAcquire();
+    public FilterChain getChain(FilterDirection direction) {
+        return chains.get(direction);
     }
     
-    private String filterWords(String message) {
-        String result = message;
-        for (Map.Entry<String, String> entry : wordFilter.entrySet()) {
-            result = result.replaceAll(Pattern.quote(entry.getKey()), entry.getValue());
+    public RateLimiter getSenderLimiter() {
+        return rateLimits.get(FilterDirection.QQ_TO_MC).sender;
+    }
+    
+    public RateLimiter getGroupLimiter() {
+        return rateLimits.get(FilterDirection.QQ_TO_MC).group;
+    }
+    
+    /**
+     * 一次加载的敏感词过滤配置，构建后不再修改
+     */
+    private static final class WordFilter {
+        final WordMatcher matcher;
+        // 敏感词匹配前的规范化，关闭时为null
+        final TextNormalizer normalizer;
+        final String replacement;
+        
+        WordFilter(List<String> words, boolean ignoreCase, TextNormalizer normalizer, String replacement) {
+            // 敏感词本身也按同样的规则规范化，保证两边一致
+            if (normalizer != null) {
+                List<String> normalized = new ArrayList<>(words.size());
+                for (String word : words) {
+                    normalized.add(normalizer.normalize(word));
+                }
+                words = normalized;
+            }
+            this.matcher = new WordMatcher(words, ignoreCase);
+            this.normalizer = normalizer;
+            this.replacement = replacement;
+        }
+    }
+    
+    /**
+     * 规范化使用的可复用缓冲区
+     */
+    private static class NormalizeBuffer {
+        final StringBuilder text = new StringBuilder(256);
+        int[] offsets = new int[256];
+        
+        int[] offsets(int length) {
+            if (offsets.length < length) {
+                offsets = new int[Math.max(length, offsets.length * 2)];
+            }
+            return offsets;
         }
-        return result;
     }
     
-    private static class RateLimit {
-        private final int limit;
-        private int count;
-        private long resetTime;
+    /**
+     * 一个方向的发送者和群限流器
+     */
+    private static class RateLimits {
+        volatile RateLimiter sender = new RateLimiter(0);
+        volatile RateLimiter group = new RateLimiter(0);
         
-        RateLimit(int limit) {
-            this.limit = limit;
-            this.count = 0;
-            this.resetTime = System.currentTimeMillis() + 60000;
+        void configure(int perSender, int perGroup) {
+            // 速率限制有变化时才重建，避免重载配置清空限流状态
+            if (perSender != sender.getPerMinute()) {
+                sender = new RateLimiter(perSender);
+            }
+            if (perGroup != group.getPerMinute()) {
+                group = new RateLimiter(perGroup);
+            }
         }
         
-        boolean tryAcquire() {
-            long now = System.currentTimeMillis();
-            if (now >= resetTime) {
-                count = 0;
-                resetTime = now + 60000;
+        boolean apply(FilterContext context) {
+            // 先检查发送者，避免单个用户刷屏占用整个群的额度
+            if (!sender.tryAcquire(context.getSenderId())) {
+                return context.reject("发送消息太快，请稍后再试");
             }
-            
-            if (count >= limit) {
-                return false;
+            if (!group.tryAcquire(context.getGroupId())) {
+                return context.reject("群内消息过多，请稍后再试");
             }
-            
-            count++;
             return true;
         }
+        
+        void evictIdle() {
+            sender.evictIdle();
+            group.evictIdle();
+        }
     }
     
     public static class FilterResult {
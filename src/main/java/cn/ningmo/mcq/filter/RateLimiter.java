@@ -0,0 +1,86 @@
+package cn.ningmo.mcq.filter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按key（发送者或群号）限流的无锁限流器，使用GCRA算法（等价于令牌桶）。
+ * <p>
+ * 每个key的状态只有一个“理论到达时间”（TAT），用CAS更新：
+ * 每条消息把TAT推后一个发放间隔，TAT超前当前时间太多时拒绝。
+ * TAT不晚于当前时间说明令牌桶已满，这样的key会被 {@link #evictIdle()} 移除，
+ * 因此占用的内存只和最近活跃的key数量有关。
+ */
+public final class RateLimiter {
+    // 已被清理的桶，持有旧引用的线程看到后重新获取
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private final Map<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final int perMinute;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * @param perMinute 每分钟允许的消息数，同时也是允许的突发数量；不大于0表示不限制
+     */
+    public RateLimiter(int perMinute) {
+        this.perMinute = perMinute;
+        this.intervalNanos = perMinute > 0 ? TimeUnit.MINUTES.toNanos(1) / perMinute : 0;
+        this.toleranceNanos = perMinute > 0 ? intervalNanos * (perMinute - 1) : 0;
+    }
+
+    public boolean isEnabled() {
+        return perMinute > 0;
+    }
+
+    /**
+     * 尝试为key获取一次发送许可
+     */
+    public boolean tryAcquire(long key) {
+        if (perMinute <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        while (true) {
+            AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            long tat = bucket.get();
+            if (tat == EVICTED) {
+                buckets.remove(key, bucket);
+                continue;
+            }
+            long base = tat - now > 0 ? tat : now;
+            if (base - now > toleranceNanos) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (bucket.compareAndSet(tat, base + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 移除令牌桶已满的key，由定时任务调用
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Map.Entry<Long, AtomicLong> entry : buckets.entrySet()) {
+            AtomicLong bucket = entry.getValue();
+            long tat = bucket.get();
+            if (tat != EVICTED && now - tat >= 0 && bucket.compareAndSet(tat, EVICTED)) {
+                buckets.remove(entry.getKey(), bucket);
+                evicted.incrementAndGet();
+            }
+        }
+    }
+
+    // Getters
+    public int getPerMinute() { return perMinute; }
+    public int getTracked() { return buckets.size(); }
+    public long getRejected() { return rejected.get(); }
+    public long getEvicted() { return evicted.get(); }
+}
@@ -0,0 +1,109 @@
+package cn.ningmo.mcq.filter;
+
+import java.text.Normalizer;
+
+/**
+ * 敏感词匹配前的文本规范化，用于识别全角字母、形近字母、零宽字符和插入分隔符等规避手段。
+ * <p>
+ * 第一次规范化时为整个基本多文种平面计算折叠表和字符分类表（约需100-200毫秒，
+ * 主要是NFKC的开销），创建实例本身不会触发计算，调用方应在异步线程中第一次使用；
+ * 规范化时每个字符只查一次表，一遍扫描完成，除输出缓冲区外不分配内存；
+ * 同时记录每个输出字符在原文中的位置，使替换落在原文的正确字符上。
+ */
+public final class TextNormalizer {
+    private static final byte KEEP = 0;
+    // 零宽字符、格式控制符、组合附加符号等，总是去除
+    private static final byte IGNORABLE = 1;
+    // 空白和标点符号，可配置是否去除
+    private static final byte SEPARATOR = 2;
+
+    /**
+     * 折叠表和分类表，第一次访问时由类加载机制保证只构建一次
+     */
+    private static final class Tables {
+        static final char[] FOLD = new char[Character.MAX_VALUE + 1];
+        static final byte[] CLASS = new byte[Character.MAX_VALUE + 1];
+
+        // 常见的西里尔/希腊形近字母，NFKC不会折叠它们
+        private static final String HOMOGLYPHS =
+            "аaеeоoрpсcуyхxіiјjѕsАAВBЕEКKМMНHОOРPСCТTХX"
+            + "ΑAΒBΕEΖZΗHΙIΚKΜMΝNΟOΡPΤTΥYΧXαaοoνvρp";
+
+        static {
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                char ch = (char) c;
+                FOLD[c] = ch;
+                if (Character.isSurrogate(ch)) {
+                    continue;
+                }
+                switch (Character.getType(ch)) {
+                    case Character.FORMAT:
+                    case Character.NON_SPACING_MARK:
+                    case Character.ENCLOSING_MARK:
+                        CLASS[c] = IGNORABLE;
+                        continue;
+                    case Character.SPACE_SEPARATOR:
+                    case Character.LINE_SEPARATOR:
+                    case Character.PARAGRAPH_SEPARATOR:
+                    case Character.CONTROL:
+                    case Character.DASH_PUNCTUATION:
+                    case Character.CONNECTOR_PUNCTUATION:
+                    case Character.START_PUNCTUATION:
+                    case Character.END_PUNCTUATION:
+                    case Character.INITIAL_QUOTE_PUNCTUATION:
+                    case Character.FINAL_QUOTE_PUNCTUATION:
+                    case Character.OTHER_PUNCTUATION:
+                    case Character.MATH_SYMBOL:
+                    case Character.MODIFIER_SYMBOL:
+                    case Character.OTHER_SYMBOL:
+                        CLASS[c] = SEPARATOR;
+                        continue;
+                    default:
+                        break;
+                }
+                // 全角字母、带圈字母等兼容字符，只折叠结果为单个字符的情况
+                String folded = Normalizer.normalize(String.valueOf(ch), Normalizer.Form.NFKC);
+                if (folded.length() == 1) {
+                    FOLD[c] = folded.charAt(0);
+                }
+            }
+            for (int i = 0; i < HOMOGLYPHS.length(); i += 2) {
+                FOLD[HOMOGLYPHS.charAt(i)] = HOMOGLYPHS.charAt(i + 1);
+            }
+        }
+    }
+
+    private final boolean stripSeparators;
+
+    public TextNormalizer(boolean stripSeparators) {
+        this.stripSeparators = stripSeparators;
+    }
+
+    /**
+     * 规范化text，结果写入out（会先清空），offsets[i]为out第i个字符在原文中的位置
+     * @param offsets 长度至少为text.length()
+     */
+    public void normalize(CharSequence text, StringBuilder out, int[] offsets) {
+        out.setLength(0);
+        char[] fold = Tables.FOLD;
+        byte[] classes = Tables.CLASS;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            byte type = classes[c];
+            if (type == IGNORABLE || (type == SEPARATOR && stripSeparators)) {
+                continue;
+            }
+            offsets[out.length()] = i;
+            out.append(fold[c]);
+        }
+    }
+
+    /**
+     * 规范化单个字符串，用于加载敏感词
+     */
+    public String normalize(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        normalize(text, out, new int[text.length()]);
+        return out.toString();
+    }
+}
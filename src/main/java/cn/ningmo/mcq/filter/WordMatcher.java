@@ -0,0 +1,239 @@
+package cn.ningmo.mcq.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick多模式匹配自动机，加载敏感词时构建一次，
+ * 匹配时对文本只做一遍线性扫描即可找出所有（包括相互重叠的）敏感词。
+ * <p>
+ * 构建完成后转移表压缩为按字符排序的数组，查找转移时二分搜索；
+ * 每个状态只记录以该状态结尾的最长敏感词长度，较短的匹配被其覆盖。
+ */
+public final class WordMatcher {
+    /**
+     * 匹配回调
+     */
+    public interface MatchHandler {
+        /**
+         * @param start 匹配的起始位置（包含）
+         * @param end 匹配的结束位置（不包含）
+         */
+        void onMatch(int start, int end);
+    }
+
+    private final boolean ignoreCase;
+    // 状态s的转移为 edgeChars/edgeTargets 中 [edgeStart[s], edgeStart[s + 1]) 的部分
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    // 以该状态结尾的最长敏感词长度，0表示没有
+    private final int[] matchLength;
+    private final int wordCount;
+
+    public WordMatcher(Collection<String> words, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+
+        // 构建字典树
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        lengths.add(0);
+        int count = 0;
+        for (String word : words) {
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                char c = fold(word.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    lengths.add(0);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (lengths.get(state) == 0) {
+                count++;
+            }
+            lengths.set(state, word.length());
+        }
+        this.wordCount = count;
+
+        // 压缩转移表
+        int states = trie.size();
+        int edges = 0;
+        for (TreeMap<Character, Integer> transitions : trie) {
+            edges += transitions.size();
+        }
+        this.edgeStart = new int[states + 1];
+        this.edgeChars = new char[edges];
+        this.edgeTargets = new int[edges];
+        int edge = 0;
+        for (int s = 0; s < states; s++) {
+            edgeStart[s] = edge;
+            for (Map.Entry<Character, Integer> entry : trie.get(s).entrySet()) {
+                edgeChars[edge] = entry.getKey();
+                edgeTargets[edge] = entry.getValue();
+                edge++;
+            }
+        }
+        edgeStart[states] = edge;
+
+        // 按层序计算失败指针，同时把失败链上的最长匹配长度合并到当前状态
+        this.fail = new int[states];
+        this.matchLength = new int[states];
+        for (int s = 0; s < states; s++) {
+            matchLength[s] = lengths.get(s);
+        }
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            queue.add(edgeTargets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                char c = edgeChars[e];
+                int child = edgeTargets[e];
+                int f = fail[state];
+                int target;
+                while ((target = transition(f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = target >= 0 ? target : 0;
+                matchLength[child] = Math.max(matchLength[child], matchLength[fail[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    private char fold(char c) {
+        return ignoreCase ? Character.toLowerCase(c) : c;
+    }
+
+    private int transition(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char value = edgeChars[mid];
+            if (value < c) {
+                low = mid + 1;
+            } else if (value > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 扫描文本，对每个位置结尾的最长匹配调用一次回调
+     */
+    public void match(CharSequence text, MatchHandler handler) {
+        if (wordCount == 0) {
+            return;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next >= 0 ? next : 0;
+            int length = matchLength[state];
+            if (length > 0) {
+                handler.onMatch(i + 1 - length, i + 1);
+            }
+        }
+    }
+
+    /**
+     * 文本是否包含任意敏感词
+     */
+    public boolean contains(CharSequence text) {
+        boolean[] found = new boolean[1];
+        match(text, (start, end) -> found[0] = true);
+        return found[0];
+    }
+
+    /**
+     * 把所有匹配到的字符替换为replacement，相互重叠的匹配合并处理
+     * @return 替换后的文本，没有匹配时返回原字符串
+     */
+    public String replace(String text, String replacement) {
+        return replace(text, text, null, replacement);
+    }
+
+    /**
+     * 在规范化后的文本scanned上匹配，再通过offsets把匹配位置映射回原文进行替换，
+     * 匹配范围内被规范化去掉的字符（如插入的分隔符）一并替换
+     * @param offsets scanned中每个字符在text中的位置，为null表示scanned就是text
+     * @return 替换后的文本，没有匹配时返回原字符串
+     */
+    public String replace(String text, CharSequence scanned, int[] offsets, String replacement) {
+        if (wordCount == 0) {
+            return text;
+        }
+        Masker masker = new Masker(text.length(), offsets);
+        match(scanned, masker);
+        boolean[] masked = masker.masked;
+        if (masked == null) {
+            return text;
+        }
+
+        StringBuilder builder = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            if (masked[i]) {
+                builder.append(replacement);
+            } else {
+                builder.append(text.charAt(i));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 记录原文中需要替换的字符，第一次匹配时才分配标记数组
+     */
+    private static final class Masker implements MatchHandler {
+        private final int length;
+        private final int[] offsets;
+        boolean[] masked;
+
+        Masker(int length, int[] offsets) {
+            this.length = length;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public void onMatch(int start, int end) {
+            if (masked == null) {
+                masked = new boolean[length];
+            }
+            int from = offsets != null ? offsets[start] : start;
+            int to = offsets != null ? offsets[end - 1] : end - 1;
+            for (int i = from; i <= to; i++) {
+                masked[i] = true;
+            }
+        }
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public int getStateCount() {
+        return fail.length;
+    }
+}
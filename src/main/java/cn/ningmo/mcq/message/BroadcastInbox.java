@@ -0,0 +1,132 @@
+package cn.ningmo.mcq.message;
+
+import cn.ningmo.mcq.MCQ;
+import cn.ningmo.mcq.config.Settings;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QQ到MC的广播收件箱：WebSocket侧无锁地写入待广播的消息，
+ * 由一个主线程重复任务每tick取出并广播。
+ * <p>
+ * 每tick的广播耗时受配置的时间预算限制，未广播完的消息留到下一tick，
+ * 避免QQ刷屏时占用整个tick。
+ */
+public class BroadcastInbox {
+    private final MCQ plugin;
+    private final Queue<String> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private BukkitTask drainTask;
+    private volatile boolean stopped;
+
+    // 统计数据
+    private final AtomicLong broadcast = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long deferredTicks;
+    private volatile int maxPerTick;
+
+    public BroadcastInbox(MCQ plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        drainTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
+    }
+
+    /**
+     * 停止每tick的广播，之后提交的消息不再入队
+     */
+    public void stop() {
+        stopped = true;
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+    }
+
+    /**
+     * 提交一条待广播的消息，可在任意线程调用
+     */
+    public void submit(String message) {
+        if (stopped) {
+            discard(message);
+            return;
+        }
+        inbox.add(message);
+        // 与stop()和flush()并发时，消息可能在flush之后才入队，此时已无人取出
+        if (stopped && inbox.remove(message)) {
+            discard(message);
+            return;
+        }
+        int depth = pending.incrementAndGet();
+
+        // 超出上限时丢弃最早的消息
+        int maxPending = plugin.getSettings().getBroadcastMaxPending();
+        while (depth > maxPending && inbox.poll() != null) {
+            depth = pending.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * 在主线程广播收件箱中的消息，直到收件箱为空或用完本tick的时间预算
+     */
+    private void drain() {
+        if (pending.get() == 0) {
+            return;
+        }
+
+        Settings settings = plugin.getSettings();
+        long deadline = System.nanoTime() + settings.getBroadcastTickBudgetNanos();
+        int count = 0;
+        String message;
+        // 每tick至少广播一条，保证收件箱总能向前推进
+        while ((message = inbox.poll()) != null) {
+            pending.decrementAndGet();
+            plugin.getServer().broadcastMessage(message);
+            count++;
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        broadcast.addAndGet(count);
+        if (count > maxPerTick) {
+            maxPerTick = count;
+        }
+        if (message != null && pending.get() > 0) {
+            deferredTicks++;
+        }
+    }
+
+    /**
+     * 关闭插件时广播剩余消息，只能在主线程调用
+     */
+    public void flush() {
+        String message;
+        while ((message = inbox.poll()) != null) {
+            pending.decrementAndGet();
+            plugin.getServer().broadcastMessage(message);
+            broadcast.incrementAndGet();
+        }
+    }
+
+    /**
+     * 插件关闭后才到达的消息无法再广播，记录到日志后丢弃
+     */
+    private void discard(String message) {
+        dropped.incrementAndGet();
+        plugin.getLogger().info("插件已关闭，未广播的QQ消息: " + message);
+    }
+
+    // Getters
+    public int getPending() { return pending.get(); }
+    public long getBroadcast() { return broadcast.get(); }
+    public long getDropped() { return dropped.get(); }
+    public long getDeferredTicks() { return deferredTicks; }
+    public int getMaxPerTick() { return maxPerTick; }
+}
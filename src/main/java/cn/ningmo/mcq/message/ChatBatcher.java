@@ -0,0 +1,102 @@
+package cn.ningmo.mcq.message;
+
+import cn.ningmo.mcq.MCQ;
+import cn.ningmo.mcq.config.Settings;
+import cn.ningmo.mcq.network.Priority;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MC到QQ聊天消息合并器：在时间窗口内按群缓存聊天行，
+ * 窗口结束或达到行数/长度上限时合并为一条多行消息发送。
+ */
+public class ChatBatcher {
+    private final MCQ plugin;
+    private final Map<Long, Batch> batches = new ConcurrentHashMap<>();
+
+    public ChatBatcher(MCQ plugin) {
+        this.plugin = plugin;
+    }
+
+    public void reload() {
+        // 关闭合并时立即发送已缓存的消息
+        if (!isEnabled()) {
+            flushAll();
+        }
+    }
+
+    public boolean isEnabled() {
+        return plugin.getSettings().isChatBatchEnabled();
+    }
+
+    public void add(long groupId, String line) {
+        Settings settings = plugin.getSettings();
+        int maxLines = settings.getChatBatchMaxLines();
+        int maxLength = settings.getChatBatchMaxLength();
+        long windowTicks = Math.max(1, (settings.getChatBatchWindowMillis() + 49) / 50);
+        Batch batch = batches.computeIfAbsent(groupId, k -> new Batch());
+        boolean scheduleFlush = false;
+        long generation;
+
+        synchronized (batch) {
+            // 加入后会超过长度上限则先发送已有内容
+            if (batch.lines > 0 && batch.buffer.length() + 1 + line.length() > maxLength) {
+                send(groupId, batch);
+            }
+
+            if (batch.lines == 0) {
+                batch.generation++;
+                scheduleFlush = true;
+            } else {
+                batch.buffer.append('\n');
+            }
+            batch.buffer.append(line);
+            batch.lines++;
+            generation = batch.generation;
+
+            if (batch.lines >= maxLines || batch.buffer.length() >= maxLength) {
+                send(groupId, batch);
+                scheduleFlush = false;
+            }
+        }
+
+        if (scheduleFlush) {
+            plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, () -> {
+                synchronized (batch) {
+                    // 该批次已因达到上限提前发送
+                    if (batch.generation == generation && batch.lines > 0) {
+                        send(groupId, batch);
+                    }
+                }
+            }, windowTicks);
+        }
+    }
+
+    /**
+     * 立即发送所有已缓存的消息
+     */
+    public void flushAll() {
+        for (Map.Entry<Long, Batch> entry : batches.entrySet()) {
+            Batch batch = entry.getValue();
+            synchronized (batch) {
+                if (batch.lines > 0) {
+                    send(entry.getKey(), batch);
+                }
+            }
+        }
+    }
+
+    private void send(long groupId, Batch batch) {
+        String message = batch.buffer.toString();
+        batch.buffer.setLength(0);
+        batch.lines = 0;
+        plugin.getBotClient().sendGroupMessage(groupId, message, Priority.NORMAL);
+    }
+
+    private static class Batch {
+        final StringBuilder buffer = new StringBuilder();
+        int lines;
+        long generation;
+    }
+}
@@ -0,0 +1,103 @@
+package cn.ningmo.mcq.message;
+
+import cn.ningmo.mcq.MCQ;
+import cn.ningmo.mcq.network.Priority;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 进出服通知汇总：在时间窗口内收集玩家进出事件，窗口结束时向每个群发送一条汇总，
+ * 窗口内先进后出（或先出后进）的玩家相互抵消。
+ * <p>
+ * 所有方法都在服务器主线程调用。
+ */
+public class JoinQuitDigest {
+    private final MCQ plugin;
+    private final Set<String> joined = new LinkedHashSet<>();
+    private final Set<String> left = new LinkedHashSet<>();
+    private BukkitTask flushTask;
+
+    public JoinQuitDigest(MCQ plugin) {
+        this.plugin = plugin;
+    }
+
+    public void reload() {
+        if (!isEnabled()) {
+            flush();
+        }
+    }
+
+    public boolean isEnabled() {
+        return plugin.getSettings().isJoinQuitDigestEnabled();
+    }
+
+    public void playerJoined(String playerName) {
+        // 窗口内先离开又重新加入的玩家不做通知
+        if (!left.remove(playerName)) {
+            joined.add(playerName);
+        }
+        scheduleFlush();
+    }
+
+    public void playerLeft(String playerName) {
+        // 窗口内加入后又离开的玩家不做通知
+        if (!joined.remove(playerName)) {
+            left.add(playerName);
+        }
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushTask == null) {
+            long windowTicks = plugin.getSettings().getJoinQuitDigestWindowSeconds() * 20;
+            flushTask = plugin.getServer().getScheduler().runTaskLater(plugin, this::flush, windowTicks);
+        }
+    }
+
+    /**
+     * 立即发送当前窗口的汇总
+     */
+    public void flush() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (joined.isEmpty() && left.isEmpty()) {
+            return;
+        }
+
+        StringBuilder summary = new StringBuilder();
+        if (!joined.isEmpty()) {
+            summary.append('+').append(joined.size()).append(" 加入: ");
+            appendNames(summary, joined);
+        }
+        if (!left.isEmpty()) {
+            if (summary.length() > 0) {
+                summary.append("; ");
+            }
+            summary.append('-').append(left.size()).append(" 离开: ");
+            appendNames(summary, left);
+        }
+        joined.clear();
+        left.clear();
+
+        plugin.getBotClient().broadcastGroupMessage(summary.toString(), Priority.LOW);
+    }
+
+    private void appendNames(StringBuilder summary, Set<String> names) {
+        int maxNames = plugin.getSettings().getJoinQuitDigestMaxNames();
+        Iterator<String> iterator = names.iterator();
+        for (int i = 0; i < maxNames && iterator.hasNext(); i++) {
+            if (i > 0) {
+                summary.append(", ");
+            }
+            summary.append(iterator.next());
+        }
+        if (iterator.hasNext()) {
+            summary.append("…");
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package cn.ningmo.mcq.message;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的消息格式模板。
+ * <p>
+ * 加载配置时把格式字符串拆分为文本段和占位符段，渲染时按段顺序一次写入
+ * 预估好容量的StringBuilder，不再对模板反复执行replace。
+ * 未知的 {xxx} 以及渲染时未设置值的占位符原样保留，与逐个replace时的结果一致。
+ */
+public final class MessageTemplate {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /**
+     * 支持的占位符
+     */
+    public enum Placeholder {
+        /** QQ消息发送者昵称 */
+        SENDER("sender"),
+        /** 消息正文 */
+        MESSAGE("message"),
+        /** MC玩家名 */
+        PLAYER("player"),
+        /** 群号 */
+        GROUP("group"),
+        /** 发送者QQ号 */
+        QQ("qq"),
+        /** 玩家所在世界 */
+        WORLD("world"),
+        /** 当前时间 */
+        TIME("time");
+
+        private static final Placeholder[] VALUES = values();
+
+        private final String key;
+
+        Placeholder(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        static Placeholder byKey(String key) {
+            for (Placeholder placeholder : VALUES) {
+                if (placeholder.key.equals(key)) {
+                    return placeholder;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 一次渲染使用的占位符取值
+     */
+    public static final class Values {
+        private final String[] values = new String[Placeholder.VALUES.length];
+
+        public Values set(Placeholder placeholder, String value) {
+            values[placeholder.ordinal()] = value;
+            return this;
+        }
+
+        public Values set(Placeholder placeholder, long value) {
+            return set(placeholder, String.valueOf(value));
+        }
+    }
+
+    private final String format;
+    // literals[i] 位于 placeholders[i] 之前，最后一个文本段在所有占位符之后
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+    private final int literalLength;
+    private final int usedMask;
+
+    private MessageTemplate(String format, String[] literals, Placeholder[] placeholders) {
+        this.format = format;
+        this.literals = literals;
+        this.placeholders = placeholders;
+
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        int mask = 0;
+        for (Placeholder placeholder : placeholders) {
+            mask |= 1 << placeholder.ordinal();
+        }
+        this.literalLength = length;
+        this.usedMask = mask;
+    }
+
+    /**
+     * 编译格式字符串
+     */
+    public static MessageTemplate compile(String format) {
+        if (format == null) {
+            format = "";
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int length = format.length();
+        int i = 0;
+        while (i < length) {
+            char c = format.charAt(i);
+            if (c == '{') {
+                int end = format.indexOf('}', i + 1);
+                Placeholder placeholder = end < 0 ? null : Placeholder.byKey(format.substring(i + 1, end));
+                if (placeholder != null) {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    placeholders.add(placeholder);
+                    i = end + 1;
+                    continue;
+                }
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+
+        return new MessageTemplate(format,
+            literals.toArray(new String[0]),
+            placeholders.toArray(new Placeholder[0]));
+    }
+
+    public static Values values() {
+        return new Values();
+    }
+
+    /**
+     * 模板是否使用了指定占位符，用于跳过取值开销较大的占位符
+     */
+    public boolean uses(Placeholder placeholder) {
+        return (usedMask & (1 << placeholder.ordinal())) != 0;
+    }
+
+    /**
+     * 按段顺序渲染，未设置的占位符保留为 {key}
+     */
+    public String render(Values values) {
+        String[] resolved = values.values;
+        int capacity = literalLength;
+        for (Placeholder placeholder : placeholders) {
+            String value = resolved[placeholder.ordinal()];
+            capacity += value != null ? value.length() : placeholder.key.length() + 2;
+        }
+
+        StringBuilder builder = new StringBuilder(capacity);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+            String value = resolved[placeholders[i].ordinal()];
+            if (value != null) {
+                builder.append(value);
+            } else {
+                builder.append('{').append(placeholders[i].key).append('}');
+            }
+        }
+        builder.append(literals[placeholders.length]);
+        return builder.toString();
+    }
+
+    /**
+     * {time} 占位符使用的当前时间
+     */
+    public static String currentTime() {
+        return LocalTime.now().format(TIME_FORMAT);
+    }
+
+    @Override
+    public String toString() {
+        return format;
+    }
+}
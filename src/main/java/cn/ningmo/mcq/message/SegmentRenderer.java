@@ -0,0 +1,353 @@
+package cn.ningmo.mcq.message;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OneBot消息段渲染器：把数组格式的消息段或CQ码字符串单遍转换为MC中显示的文本，
+ * 同时判断消息是否为纯图片，不使用正则表达式。
+ * <p>
+ * 文本段直接输出，其它类型的消息段交给按类型注册的 {@link SegmentHandler}，
+ * 没有处理器的类型忽略。每个线程复用一个消息段对象和输出缓冲区。
+ * <p>
+ * @ 和图片后面带一个空格，与原来逐段拼接的输出保持一致，整条消息最后去掉首尾空白。
+ */
+public class SegmentRenderer {
+    private static final String CQ_PREFIX = "[CQ:";
+
+    private final Map<String, SegmentHandler> handlers = new ConcurrentHashMap<>();
+    private final ThreadLocal<Segment> segments = ThreadLocal.withInitial(Segment::new);
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * 消息段处理器，把一个非文本消息段追加到输出中
+     */
+    public interface SegmentHandler {
+        void render(Segment segment, StringBuilder out);
+    }
+
+    public SegmentRenderer() {
+        register("at", (segment, out) -> {
+            String qq = segment.get("qq");
+            if ("all".equals(qq)) {
+                out.append("@全体成员 ");
+                return;
+            }
+            String name = segment.get("name");
+            out.append('@').append(name != null && !name.isEmpty() ? name : qq).append(' ');
+        });
+        register("image", (segment, out) -> {
+            // 动画表情等带有摘要的图片显示摘要
+            String summary = segment.get("summary");
+            out.append(summary != null && !summary.isEmpty() ? summary : "[图片]").append(' ');
+        });
+        register("face", label("[表情]"));
+        register("mface", label("[表情]"));
+        register("reply", label("[回复]"));
+        register("forward", label("[合并转发]"));
+        register("record", label("[语音]"));
+        register("video", label("[视频]"));
+        register("location", label("[位置]"));
+        register("dice", label("[骰子]"));
+        register("rps", label("[猜拳]"));
+        register("poke", label("[戳一戳]"));
+        register("xml", label("[卡片]"));
+        register("file", (segment, out) -> {
+            String name = segment.get("name");
+            if (name == null) {
+                name = segment.get("file");
+            }
+            out.append(name != null ? "[文件: " + name + "]" : "[文件]");
+        });
+        register("share", (segment, out) -> {
+            String title = segment.get("title");
+            out.append(title != null ? "[分享: " + title + "]" : "[分享]");
+        });
+        register("json", (segment, out) -> {
+            String prompt = jsonCardPrompt(segment.get("data"));
+            out.append(prompt != null ? "[卡片: " + prompt + "]" : "[卡片]");
+        });
+    }
+
+    private static SegmentHandler label(String text) {
+        return (segment, out) -> out.append(text);
+    }
+
+    /**
+     * 注册或替换某类消息段的处理器
+     */
+    public void register(String type, SegmentHandler handler) {
+        handlers.put(type, handler);
+    }
+
+    public void unregister(String type) {
+        handlers.remove(type);
+    }
+
+    /**
+     * 渲染数组格式的消息
+     */
+    public Result render(JsonArray message) {
+        Segment segment = segments.get();
+        StringBuilder out = buffer();
+        State state = new State();
+
+        for (JsonElement element : message) {
+            if (!element.isJsonObject()) {
+                continue;
+            }
+            JsonObject object = element.getAsJsonObject();
+            JsonElement type = object.get("type");
+            if (type == null || !type.isJsonPrimitive()) {
+                continue;
+            }
+            JsonElement data = object.get("data");
+
+            segment.reset(type.getAsString());
+            if (data != null && data.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> entry : data.getAsJsonObject().entrySet()) {
+                    JsonElement value = entry.getValue();
+                    if (value.isJsonNull()) {
+                        continue;
+                    }
+                    segment.put(entry.getKey(), value.isJsonPrimitive() ? value.getAsString() : value.toString());
+                }
+            }
+
+            if ("text".equals(segment.type)) {
+                String text = segment.get("text");
+                if (text != null) {
+                    appendText(out, state, text, 0, text.length(), false);
+                }
+            } else {
+                renderSegment(segment, out, state);
+            }
+        }
+        return state.finish(out);
+    }
+
+    /**
+     * 渲染CQ码字符串格式的消息
+     */
+    public Result render(String message) {
+        Segment segment = segments.get();
+        StringBuilder out = buffer();
+        State state = new State();
+
+        int length = message.length();
+        int textStart = 0;
+        int i = 0;
+        while (i < length) {
+            int start = message.indexOf(CQ_PREFIX, i);
+            if (start < 0) {
+                break;
+            }
+            // CQ码参数中的 ] 已被转义，第一个 ] 即为结束位置
+            int end = message.indexOf(']', start);
+            if (end < 0) {
+                break;
+            }
+
+            appendText(out, state, message, textStart, start, true);
+            parseCode(message, start + CQ_PREFIX.length(), end, segment);
+            renderSegment(segment, out, state);
+
+            i = end + 1;
+            textStart = i;
+        }
+        appendText(out, state, message, textStart, length, true);
+        return state.finish(out);
+    }
+
+    private void renderSegment(Segment segment, StringBuilder out, State state) {
+        if ("image".equals(segment.type)) {
+            state.images++;
+        } else {
+            state.other = true;
+        }
+        SegmentHandler handler = handlers.get(segment.type);
+        if (handler != null) {
+            handler.render(segment, out);
+        }
+    }
+
+    /**
+     * 解析 type,key=value,... 形式的CQ码内容
+     */
+    private static void parseCode(String message, int from, int to, Segment segment) {
+        int comma = message.indexOf(',', from);
+        if (comma < 0 || comma > to) {
+            comma = to;
+        }
+        segment.reset(message.substring(from, comma));
+
+        int i = comma + 1;
+        while (i < to) {
+            int next = message.indexOf(',', i);
+            if (next < 0 || next > to) {
+                next = to;
+            }
+            int equals = message.indexOf('=', i);
+            if (equals > 0 && equals < next) {
+                segment.put(message.substring(i, equals), unescape(message, equals + 1, next));
+            }
+            i = next + 1;
+        }
+    }
+
+    private static void appendText(StringBuilder out, State state, String text, int from, int to, boolean escaped) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                state.other = true;
+                break;
+            }
+        }
+        if (escaped) {
+            appendUnescaped(out, text, from, to);
+        } else {
+            out.append(text, from, to);
+        }
+    }
+
+    private static String unescape(String text, int from, int to) {
+        int amp = text.indexOf('&', from);
+        if (amp < 0 || amp >= to) {
+            return text.substring(from, to);
+        }
+        StringBuilder builder = new StringBuilder(to - from);
+        appendUnescaped(builder, text, from, to);
+        return builder.toString();
+    }
+
+    /**
+     * 还原CQ码转义：&amp; &#91; &#93; &#44;
+     */
+    private static void appendUnescaped(StringBuilder out, String text, int from, int to) {
+        int i = from;
+        while (i < to) {
+            char c = text.charAt(i);
+            if (c == '&') {
+                if (text.startsWith("&amp;", i) && i + 5 <= to) {
+                    out.append('&');
+                    i += 5;
+                    continue;
+                }
+                if (text.startsWith("&#91;", i) && i + 5 <= to) {
+                    out.append('[');
+                    i += 5;
+                    continue;
+                }
+                if (text.startsWith("&#93;", i) && i + 5 <= to) {
+                    out.append(']');
+                    i += 5;
+                    continue;
+                }
+                if (text.startsWith("&#44;", i) && i + 5 <= to) {
+                    out.append(',');
+                    i += 5;
+                    continue;
+                }
+            }
+            out.append(c);
+            i++;
+        }
+    }
+
+    private static String jsonCardPrompt(String data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            JsonElement prompt = JsonParser.parseString(data).getAsJsonObject().get("prompt");
+            return prompt != null && prompt.isJsonPrimitive() ? prompt.getAsString() : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private StringBuilder buffer() {
+        StringBuilder builder = buffers.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    /**
+     * 可复用的消息段，保存类型和参数
+     */
+    public static final class Segment {
+        private String type;
+        private String[] keys = new String[8];
+        private String[] values = new String[8];
+        private int size;
+
+        void reset(String type) {
+            this.type = type;
+            Arrays.fill(keys, 0, size, null);
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+
+        void put(String key, String value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * 读取参数，不存在时返回null
+         */
+        public String get(String key) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i].equals(key)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class State {
+        int images;
+        // 是否包含图片以外的内容（非空白文本或其它消息段）
+        boolean other;
+
+        Result finish(StringBuilder out) {
+            return new Result(out.toString().trim(), images > 0 && !other);
+        }
+    }
+
+    /**
+     * 渲染结果
+     */
+    public static final class Result {
+        private final String text;
+        private final boolean pureImage;
+
+        Result(String text, boolean pureImage) {
+            this.text = text;
+            this.pureImage = pureImage;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isPureImage() {
+            return pureImage;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package cn.ningmo.mcq.monitor;
 
 import cn.ningmo.mcq.MCQ;
+import cn.ningmo.mcq.network.Priority;
 import org.bukkit.scheduler.BukkitTask;
 
 public class PerformanceMonitor {
@@ -78,8 +79,6 @@ public class PerformanceMonitor {
     }
     
     private void broadcastWarning(String warning) {
-        for (Long groupId : plugin.getConfig().getLongList("bot.groups")) {
-            plugin.getBotClient().sendGroupMessage(groupId, "[警告] " + warning);
-        }
+        plugin.getBotClient().broadcastGroupMessage("[警告] " + warning, Priority.HIGH);
     }
 } 
\ No newline at end of file
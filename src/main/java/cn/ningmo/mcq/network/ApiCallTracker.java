@@ -0,0 +1,160 @@
+package cn.ningmo.mcq.network;
+
+import cn.ningmo.mcq.MCQ;
+import cn.ningmo.mcq.monitor.LatencyHistogram;
+import com.google.gson.JsonObject;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跟踪带echo的OneBot API调用，在收到对应响应时完成Future，
+ * 超时未响应的调用以TimeoutException结束
+ */
+public class ApiCallTracker {
+    private final MCQ plugin;
+    private final Map<String, PendingCall> pending = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final String echoPrefix;
+    private BukkitTask expireTask;
+
+    public ApiCallTracker(MCQ plugin) {
+        this.plugin = plugin;
+        this.echoPrefix = "mcq-" + Long.toHexString(System.currentTimeMillis()) + "-";
+    }
+
+    public void start() {
+        expireTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin,
+            this::expire, 20L, 20L);
+    }
+
+    public void stop() {
+        if (expireTask != null) {
+            expireTask.cancel();
+            expireTask = null;
+        }
+        for (PendingCall call : pending.values()) {
+            call.future.completeExceptionally(new IllegalStateException("插件已关闭"));
+        }
+        pending.clear();
+    }
+
+    /**
+     * 登记一次API调用
+     * @return 包含唯一echo和结果Future的待完成调用
+     */
+    public PendingCall register(String action, long timeoutMillis) {
+        String echo = echoPrefix + sequence.incrementAndGet();
+        long now = System.nanoTime();
+        PendingCall call = new PendingCall(echo, action, now, now + timeoutMillis * 1_000_000L);
+        pending.put(echo, call);
+        return call;
+    }
+
+    /**
+     * 处理API响应
+     * @return 该echo是否属于本插件发起的调用
+     */
+    public boolean complete(String echo, JsonObject response) {
+        PendingCall call = pending.remove(echo);
+        if (call == null) {
+            return false;
+        }
+
+        getLatency(call.action).recordNanos(System.nanoTime() - call.startTime);
+
+        int retcode = response.has("retcode") ? response.get("retcode").getAsInt() : 0;
+        String status = response.has("status") ? response.get("status").getAsString() : "ok";
+        if (retcode != 0 || "failed".equals(status)) {
+            failures.incrementAndGet();
+            String wording = response.has("wording") ? response.get("wording").getAsString()
+                : response.has("msg") ? response.get("msg").getAsString() : status;
+            call.future.completeExceptionally(new ApiCallException(call.action, retcode, wording));
+        } else {
+            call.future.complete(response);
+        }
+        return true;
+    }
+
+    /**
+     * 调用未能发出时直接结束
+     */
+    public void fail(PendingCall call, Throwable cause) {
+        if (pending.remove(call.echo) != null) {
+            failures.incrementAndGet();
+            call.future.completeExceptionally(cause);
+        }
+    }
+
+    private void expire() {
+        long now = System.nanoTime();
+        Iterator<PendingCall> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            PendingCall call = iterator.next();
+            if (now - call.deadline >= 0) {
+                iterator.remove();
+                timeouts.incrementAndGet();
+                call.future.completeExceptionally(new TimeoutException(
+                    "API调用超时: " + call.action + " (" + call.echo + ")"));
+            }
+        }
+    }
+
+    public LatencyHistogram getLatency(String action) {
+        return latencies.computeIfAbsent(action, k -> new LatencyHistogram());
+    }
+
+    public Map<String, LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<>(latencies));
+    }
+
+    public int getPendingCount() { return pending.size(); }
+    public long getTimeouts() { return timeouts.get(); }
+    public long getFailures() { return failures.get(); }
+
+    public static class PendingCall {
+        private final String echo;
+        private final String action;
+        private final long startTime;
+        private final long deadline;
+        private final CompletableFuture<JsonObject> future = new CompletableFuture<>();
+
+        PendingCall(String echo, String action, long startTime, long deadline) {
+            this.echo = echo;
+            this.action = action;
+            this.startTime = startTime;
+            this.deadline = deadline;
+        }
+
+        public String getEcho() { return echo; }
+        public String getAction() { return action; }
+        public CompletableFuture<JsonObject> getFuture() { return future; }
+    }
+
+    /**
+     * OneBot返回失败状态时的异常
+     */
+    public static class ApiCallException extends Exception {
+        private final String action;
+        private final int retcode;
+
+        public ApiCallException(String action, int retcode, String message) {
+            super("API调用失败: " + action + " retcode=" + retcode + " " + message);
+            this.action = action;
+            this.retcode = retcode;
+        }
+
+        public String getAction() { return action; }
+        public int getRetcode() { return retcode; }
+    }
+}
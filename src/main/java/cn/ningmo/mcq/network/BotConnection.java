@@ -0,0 +1,31 @@
+package cn.ningmo.mcq.network;
+
+/**
+ * 一条到OneBot实现（一个QQ账号）的连接
+ */
+public interface BotConnection {
+    /**
+     * 连接的名称、账号和统计信息
+     */
+    ConnectionInfo getInfo();
+
+    /**
+     * 连接是否可以用于收发消息
+     */
+    boolean isHealthy();
+
+    /**
+     * 发送一帧，连接已断开时抛出 {@link org.java_websocket.exceptions.WebsocketNotConnectedException}
+     */
+    void send(String frame);
+
+    /**
+     * 关闭连接
+     */
+    void close();
+
+    /**
+     * 因连接失效而断开，正向连接随后会按重连设置重新连接
+     */
+    void abort(String reason);
+}
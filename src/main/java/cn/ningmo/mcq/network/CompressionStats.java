@@ -0,0 +1,38 @@
+package cn.ningmo.mcq.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * permessage-deflate压缩前后的字节数统计，所有连接共用
+ */
+public class CompressionStats {
+    private final AtomicLong rawOut = new AtomicLong();
+    private final AtomicLong wireOut = new AtomicLong();
+    private final AtomicLong wireIn = new AtomicLong();
+    private final AtomicLong rawIn = new AtomicLong();
+
+    void recordOut(long raw, long wire) {
+        rawOut.addAndGet(raw);
+        wireOut.addAndGet(wire);
+    }
+
+    void recordIn(long wire, long raw) {
+        wireIn.addAndGet(wire);
+        rawIn.addAndGet(raw);
+    }
+
+    /**
+     * 压缩后与压缩前的字节数之比，没有数据时返回1
+     */
+    private static double ratio(long wire, long raw) {
+        return raw == 0 ? 1.0 : (double) wire / raw;
+    }
+
+    // Getters
+    public long getRawOut() { return rawOut.get(); }
+    public long getWireOut() { return wireOut.get(); }
+    public long getWireIn() { return wireIn.get(); }
+    public long getRawIn() { return rawIn.get(); }
+    public double getOutRatio() { return ratio(wireOut.get(), rawOut.get()); }
+    public double getInRatio() { return ratio(wireIn.get(), rawIn.get()); }
+}
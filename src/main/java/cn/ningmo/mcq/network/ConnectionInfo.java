@@ -0,0 +1,90 @@
+package cn.ningmo.mcq.network;
+
+import cn.ningmo.mcq.monitor.LatencyHistogram;
+import cn.ningmo.mcq.util.LongHashSet;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接的名称、登录账号、所在群和统计数据
+ */
+public class ConnectionInfo {
+    private final String name;
+    private volatile long selfId;
+    // 账号所在的群，尚未获取到群列表时为null
+    private volatile LongHashSet groups;
+    private volatile long connectedSince;
+    private volatile long lastReceived;
+    private volatile ConnectionState state = ConnectionState.CONNECTING;
+    private volatile int reconnectAttempts;
+
+    // 由连接监督器维护的心跳和重连时间（System.nanoTime）
+    volatile long probeSentAt;
+    volatile long nextHeartbeatAt;
+    volatile long nextAttemptAt;
+
+    // 统计数据
+    private final AtomicLong framesIn = new AtomicLong();
+    private final AtomicLong framesOut = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong heartbeatTimeouts = new AtomicLong();
+    private final LatencyHistogram rtt = new LatencyHistogram();
+
+    public ConnectionInfo(String name) {
+        this.name = name;
+    }
+
+    public void opened() {
+        connects.incrementAndGet();
+        connectedSince = System.currentTimeMillis();
+        groups = null;
+        state = ConnectionState.CONNECTED;
+        reconnectAttempts = 0;
+        // 连接建立后立即发送第一次心跳；nanoTime可能为负数，不能用0表示“立即”
+        probeSentAt = 0;
+        nextHeartbeatAt = System.nanoTime();
+    }
+
+    public void received() {
+        framesIn.incrementAndGet();
+        lastReceived = System.currentTimeMillis();
+    }
+
+    public void sent() {
+        framesOut.incrementAndGet();
+    }
+
+    /**
+     * 账号是否可能在该群中，群列表未知时返回true
+     */
+    public boolean mayServe(long groupId) {
+        LongHashSet current = groups;
+        return current == null || current.contains(groupId);
+    }
+
+    public void setSelfId(long selfId) { this.selfId = selfId; }
+    public void setGroups(LongHashSet groups) { this.groups = groups; }
+    public void setState(ConnectionState state) { this.state = state; }
+
+    int nextReconnectAttempt() {
+        return ++reconnectAttempts;
+    }
+
+    void heartbeatTimedOut() {
+        heartbeatTimeouts.incrementAndGet();
+    }
+
+    // Getters
+    public String getName() { return name; }
+    public long getSelfId() { return selfId; }
+    public LongHashSet getGroups() { return groups; }
+    public long getConnectedSince() { return connectedSince; }
+    public long getLastReceived() { return lastReceived; }
+    public long getFramesIn() { return framesIn.get(); }
+    public long getFramesOut() { return framesOut.get(); }
+    public long getConnects() { return connects.get(); }
+    public ConnectionState getState() { return state; }
+    public int getReconnectAttempts() { return reconnectAttempts; }
+    public long getHeartbeatTimeouts() { return heartbeatTimeouts.get(); }
+    public LatencyHistogram getRtt() { return rtt; }
+}
@@ -0,0 +1,282 @@
+package cn.ningmo.mcq.network;
+
+import cn.ningmo.mcq.MCQ;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OneBot连接池：管理多个账号的连接，为每个群选择负责收发的连接。
+ * <p>
+ * 群可以在配置中指定首选连接，未指定的群通过最高随机权重哈希（rendezvous hashing）
+ * 分散到各个连接上；首选连接不可用时切换到其它同在该群中的健康连接，
+ * 连接增减时只有少数群需要重新分配。
+ */
+public class ConnectionPool {
+    private final MCQ plugin;
+    private final List<BotConnection> connections = new CopyOnWriteArrayList<>();
+    private final List<ForwardConnection> forwardConnections = new ArrayList<>();
+    // 群号 -> 首选连接名称
+    private final Map<Long, String> preferred = new HashMap<>();
+    // QQ号 -> 最近收到该用户私聊的连接名称，私聊回复从同一个账号发出
+    private final Map<Long, String> privateRoutes = new ConcurrentHashMap<>();
+    private final ConnectionSupervisor supervisor;
+    private ReverseWsServer reverseServer;
+    private CompressionStats compressionStats;
+
+    // 统计数据
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong unroutable = new AtomicLong();
+
+    public ConnectionPool(MCQ plugin) {
+        this.plugin = plugin;
+        this.supervisor = new ConnectionSupervisor(plugin, this);
+        if (plugin.getConfig().getBoolean("bot.compression.enabled", false)) {
+            compressionStats = new CompressionStats();
+        }
+
+        List<Map<?, ?>> entries = plugin.getConfig().getMapList("bot.connections");
+        if (entries.isEmpty()) {
+            // 未配置连接池时使用单个连接，只使用反向WS时ws-url可以留空
+            String wsUrl = plugin.getConfig().getString("bot.ws-url", "ws://localhost:6700");
+            if (wsUrl != null && !wsUrl.isEmpty()) {
+                forwardConnections.add(new ForwardConnection(plugin, "default", wsUrl, createDraft()));
+            }
+        } else {
+            for (int i = 0; i < entries.size(); i++) {
+                Map<?, ?> entry = entries.get(i);
+                Object url = entry.get("url");
+                if (url == null) {
+                    plugin.getLogger().warning("连接池第 " + (i + 1) + " 项缺少url，已忽略");
+                    continue;
+                }
+                Object nameValue = entry.get("name");
+                String name = nameValue != null ? nameValue.toString() : "bot-" + (i + 1);
+                forwardConnections.add(new ForwardConnection(plugin, name, url.toString(), createDraft()));
+
+                Object groups = entry.get("groups");
+                if (groups instanceof List) {
+                    for (Object group : (List<?>) groups) {
+                        try {
+                            preferred.put(Long.parseLong(group.toString()), name);
+                        } catch (NumberFormatException e) {
+                            plugin.getLogger().warning("连接 " + name + " 的群号无效: " + group);
+                        }
+                    }
+                }
+            }
+        }
+        connections.addAll(forwardConnections);
+
+        if (plugin.getConfig().getBoolean("bot.reverse-ws.enabled", false)) {
+            String host = plugin.getConfig().getString("bot.reverse-ws.host", "127.0.0.1");
+            InetSocketAddress address = new InetSocketAddress(host,
+                plugin.getConfig().getInt("bot.reverse-ws.port", 8080));
+            String accessToken = plugin.getConfig().getString("bot.reverse-ws.access-token", "");
+            if (accessToken.isEmpty() && (address.getAddress() == null || !address.getAddress().isLoopbackAddress())) {
+                // 未设置token时任何能连上端口的人都可以冒充机器人并调用API
+                plugin.getLogger().severe("反向WS服务器监听 " + host + " 但未设置access-token，已拒绝启动；"
+                    + "请设置 bot.reverse-ws.access-token，或把 host 改为 127.0.0.1");
+            } else {
+                reverseServer = new ReverseWsServer(plugin, this, address, accessToken, createDraft());
+            }
+        }
+    }
+
+    /**
+     * 为每个连接创建WebSocket协议草案，启用压缩时协商permessage-deflate扩展
+     */
+    private Draft createDraft() {
+        if (compressionStats == null) {
+            return new Draft_6455();
+        }
+        int level = Math.max(1, Math.min(9, plugin.getConfig().getInt("bot.compression.level", 6)));
+        int threshold = Math.max(0, plugin.getConfig().getInt("bot.compression.threshold", 256));
+        return new Draft_6455(new CountingDeflateExtension(level, threshold, compressionStats));
+    }
+
+    public void start() {
+        for (ForwardConnection connection : forwardConnections) {
+            connection.connect();
+        }
+        if (reverseServer != null) {
+            reverseServer.start();
+        }
+        supervisor.start();
+    }
+
+    public void shutdown() {
+        supervisor.stop();
+        if (reverseServer != null) {
+            try {
+                reverseServer.stop(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (BotConnection connection : connections) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                plugin.getLogger().severe("断开连接时发生错误: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 加入一个由外部建立的连接
+     */
+    public void add(BotConnection connection) {
+        connections.add(connection);
+    }
+
+    public void remove(BotConnection connection) {
+        connections.remove(connection);
+    }
+
+    /**
+     * 为目标选择连接
+     * @param target 群号，私聊为负的QQ号，0表示任意连接
+     * @return 健康的连接，没有可用连接时返回null
+     */
+    public BotConnection select(long target) {
+        return select(target, true);
+    }
+
+    /**
+     * 记录收到用户私聊的连接，之后发给该用户的私聊从这个连接发出。
+     * 其它账号不一定是该用户的好友，换账号发送可能被QQ拒绝
+     */
+    public void routePrivate(long userId, BotConnection connection) {
+        privateRoutes.put(userId, connection.getInfo().getName());
+    }
+
+    /**
+     * 判断连接是否负责该群，用于在多个账号同在一个群时只处理一份事件
+     */
+    public boolean isOwner(BotConnection connection, long groupId) {
+        return connections.size() == 1 || select(groupId, false) == connection;
+    }
+
+    private BotConnection select(long target, boolean record) {
+        if (target <= 0) {
+            // 私聊优先使用收到该用户私聊的连接
+            String routed = target < 0 ? privateRoutes.get(-target) : null;
+            if (routed != null) {
+                for (BotConnection connection : connections) {
+                    if (connection.isHealthy() && routed.equals(connection.getInfo().getName())) {
+                        return connection;
+                    }
+                }
+            }
+            // API调用、未记录来源的私聊以及来源连接不可用时使用第一个健康的连接（通常为主账号）
+            for (BotConnection connection : connections) {
+                if (connection.isHealthy()) {
+                    if (record && routed != null) {
+                        failovers.incrementAndGet();
+                    }
+                    return connection;
+                }
+            }
+            if (record) {
+                unroutable.incrementAndGet();
+            }
+            return null;
+        }
+
+        BotConnection primary = null;
+        BotConnection best = null;
+        long primaryWeight = Long.MIN_VALUE;
+        long bestWeight = Long.MIN_VALUE;
+        String preferredName = preferred.get(target);
+
+        for (BotConnection connection : connections) {
+            ConnectionInfo info = connection.getInfo();
+            // 已知不在该群中的账号不参与选择
+            if (!info.mayServe(target)) {
+                continue;
+            }
+            long weight = preferredName != null && preferredName.equals(info.getName())
+                ? Long.MAX_VALUE
+                : weight(target, info.getName());
+            if (weight > primaryWeight) {
+                primary = connection;
+                primaryWeight = weight;
+            }
+            if (connection.isHealthy() && weight > bestWeight) {
+                best = connection;
+                bestWeight = weight;
+            }
+        }
+
+        if (record) {
+            if (best == null) {
+                unroutable.incrementAndGet();
+            } else if (best != primary) {
+                failovers.incrementAndGet();
+            }
+        }
+        return best;
+    }
+
+    private static long weight(long target, String name) {
+        long hash = target * 0x9E3779B97F4A7C15L ^ name.hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        // 保留 Long.MAX_VALUE 给首选连接
+        return hash == Long.MAX_VALUE ? hash - 1 : hash;
+    }
+
+    /**
+     * 由出站队列的写线程调用，没有可用连接时把可保存的消息保存到发件箱
+     * @param persistable 为false时（API调用）没有可用连接直接抛出异常，由调用方立即处理失败
+     */
+    public void deliver(String frame, long target, Priority priority, long createdAt, boolean persistable) {
+        BotConnection connection = select(target);
+        if (connection != null) {
+            try {
+                connection.send(frame);
+                return;
+            } catch (WebsocketNotConnectedException e) {
+                // 发送时连接恰好断开，保存到发件箱
+                if (!persistable || plugin.getOutbox() == null) {
+                    throw e;
+                }
+            }
+        }
+
+        Outbox outbox = plugin.getOutbox();
+        if (!persistable || outbox == null) {
+            throw new IllegalStateException("没有可用的OneBot连接");
+        }
+        outbox.append(frame, target, priority, createdAt);
+    }
+
+    public int getHealthyCount() {
+        int count = 0;
+        for (BotConnection connection : connections) {
+            if (connection.isHealthy()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Getters
+    public List<BotConnection> getConnections() { return connections; }
+    public ConnectionSupervisor getSupervisor() { return supervisor; }
+    public ReverseWsServer getReverseServer() { return reverseServer; }
+    public CompressionStats getCompressionStats() { return compressionStats; }
+    public long getFailovers() { return failovers.get(); }
+    public long getUnroutable() { return unroutable.get(); }
+}
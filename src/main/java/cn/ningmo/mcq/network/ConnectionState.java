@@ -0,0 +1,22 @@
+package cn.ningmo.mcq.network;
+
+/**
+ * 连接状态
+ */
+public enum ConnectionState {
+    CONNECTING("连接中"),
+    CONNECTED("在线"),
+    RECONNECTING("等待重连"),
+    FAILED("重连失败"),
+    CLOSED("已关闭");
+
+    private final String displayName;
+
+    ConnectionState(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
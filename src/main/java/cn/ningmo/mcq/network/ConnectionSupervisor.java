@@ -0,0 +1,186 @@
+package cn.ningmo.mcq.network;
+
+import cn.ningmo.mcq.MCQ;
+import cn.ningmo.mcq.monitor.LatencyHistogram;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接监督器：用一个定时任务负责所有连接的心跳和重连。
+ * <p>
+ * 心跳使用get_status请求并测量往返时间，超时未响应的连接视为失效并断开；
+ * 断开的正向连接按指数退避加随机抖动的间隔重新连接。
+ */
+public class ConnectionSupervisor {
+    private static final long CHECK_PERIOD_TICKS = 20L;
+
+    private final MCQ plugin;
+    private final ConnectionPool pool;
+    private BukkitTask checkTask;
+
+    // 心跳设置
+    private final boolean heartbeatEnabled;
+    private final long heartbeatIntervalNanos;
+    private final long heartbeatTimeoutNanos;
+
+    // 重连设置
+    private final boolean reconnectEnabled;
+    private final long reconnectDelayMillis;
+    private final long reconnectMaxDelayMillis;
+    private final boolean increaseDelay;
+    private final int maxAttempts;
+
+    // 统计数据
+    private final LatencyHistogram rtt = new LatencyHistogram();
+    private final AtomicLong heartbeatTimeouts = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    public ConnectionSupervisor(MCQ plugin, ConnectionPool pool) {
+        this.plugin = plugin;
+        this.pool = pool;
+
+        FileConfiguration config = plugin.getConfig();
+        this.heartbeatEnabled = config.getBoolean("bot.heartbeat.enabled", true);
+        this.heartbeatIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getInt("bot.heartbeat.interval", 30)));
+        this.heartbeatTimeoutNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getInt("bot.heartbeat.timeout", 10)));
+
+        this.reconnectEnabled = config.getBoolean("bot.reconnect.enabled", true);
+        this.reconnectDelayMillis = TimeUnit.SECONDS.toMillis(Math.max(1, config.getInt("bot.reconnect.delay", 30)));
+        this.reconnectMaxDelayMillis = Math.max(reconnectDelayMillis,
+            TimeUnit.SECONDS.toMillis(config.getInt("bot.reconnect.max-delay", 300)));
+        this.increaseDelay = config.getBoolean("bot.reconnect.increase-delay", true);
+        this.maxAttempts = config.getInt("bot.reconnect.max-attempts", 5);
+    }
+
+    public void start() {
+        checkTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin,
+            this::check, CHECK_PERIOD_TICKS, CHECK_PERIOD_TICKS);
+    }
+
+    public void stop() {
+        if (checkTask != null) {
+            checkTask.cancel();
+            checkTask = null;
+        }
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        for (BotConnection connection : pool.getConnections()) {
+            ConnectionInfo info = connection.getInfo();
+            if (connection.isHealthy()) {
+                checkHeartbeat(connection, info, now);
+            } else if (connection instanceof ForwardConnection
+                    && info.getState() == ConnectionState.RECONNECTING && now - info.nextAttemptAt >= 0) {
+                reconnect((ForwardConnection) connection, info);
+            }
+        }
+    }
+
+    private void checkHeartbeat(BotConnection connection, ConnectionInfo info, long now) {
+        if (!heartbeatEnabled) {
+            return;
+        }
+
+        long sentAt = info.probeSentAt;
+        if (sentAt != 0) {
+            // 上一次心跳尚未响应
+            if (now - sentAt > heartbeatTimeoutNanos) {
+                info.probeSentAt = 0;
+                info.heartbeatTimedOut();
+                heartbeatTimeouts.incrementAndGet();
+                plugin.getLogManager().websocket("[" + info.getName() + "] 心跳超时，断开连接");
+                connection.abort("心跳超时");
+            }
+            return;
+        }
+
+        if (now - info.nextHeartbeatAt >= 0) {
+            info.probeSentAt = now;
+            try {
+                connection.send(FrameEncoder.HEARTBEAT_FRAME);
+            } catch (WebsocketNotConnectedException e) {
+                // 连接恰好断开
+                info.probeSentAt = 0;
+            }
+        }
+    }
+
+    private void reconnect(ForwardConnection connection, ConnectionInfo info) {
+        info.setState(ConnectionState.CONNECTING);
+        reconnects.incrementAndGet();
+        plugin.getLogManager().websocket(String.format(
+            "[%s] 正在尝试重新连接到OneBot服务器（第 %d 次）...",
+            info.getName(), info.getReconnectAttempts()
+        ));
+        // reconnect会等待旧的连接线程结束，不在检查任务中执行
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, connection::reconnect);
+    }
+
+    /**
+     * 收到心跳响应时由消息处理调用
+     */
+    public void onHeartbeatResponse(BotConnection connection) {
+        ConnectionInfo info = connection.getInfo();
+        long sentAt = info.probeSentAt;
+        if (sentAt == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long elapsed = now - sentAt;
+        rtt.recordNanos(elapsed);
+        info.getRtt().recordNanos(elapsed);
+        info.probeSentAt = 0;
+        info.nextHeartbeatAt = now + heartbeatIntervalNanos;
+    }
+
+    /**
+     * 正向连接意外断开（或连接失败）时调用，安排下一次重连
+     */
+    public void onClosed(ForwardConnection connection) {
+        ConnectionInfo info = connection.getInfo();
+        info.probeSentAt = 0;
+        if (!reconnectEnabled) {
+            info.setState(ConnectionState.CLOSED);
+            return;
+        }
+
+        int attempt = info.nextReconnectAttempt();
+        if (maxAttempts > 0 && attempt > maxAttempts) {
+            info.setState(ConnectionState.FAILED);
+            plugin.getLogManager().websocket("[" + info.getName() + "] 已达到最大重连次数，停止重连");
+            return;
+        }
+
+        long delay = backoff(attempt);
+        info.nextAttemptAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        info.setState(ConnectionState.RECONNECTING);
+        plugin.getLogManager().websocket(String.format(
+            "[%s] 将在 %.1f 秒后重连", info.getName(), delay / 1000.0
+        ));
+    }
+
+    /**
+     * 计算第attempt次重连的等待时间：指数增长并限制上限，
+     * 再在 [delay/2, delay] 内随机取值，避免多个连接同时重连
+     */
+    private long backoff(int attempt) {
+        long delay = reconnectDelayMillis;
+        if (increaseDelay) {
+            int shift = Math.min(attempt - 1, 20);
+            delay = Math.min(reconnectMaxDelayMillis, reconnectDelayMillis << shift);
+        }
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    // Getters
+    public LatencyHistogram getRtt() { return rtt; }
+    public long getHeartbeatTimeouts() { return heartbeatTimeouts.get(); }
+    public long getReconnects() { return reconnects.get(); }
+}
@@ -0,0 +1,48 @@
+package cn.ningmo.mcq.network;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.Framedata;
+
+import java.util.zip.Deflater;
+
+/**
+ * 可设置压缩级别和阈值的permessage-deflate扩展，并统计压缩前后的字节数。
+ * <p>
+ * 每个连接协商时会通过 {@link #copyInstance()} 复制一份扩展，
+ * 复制时保留压缩设置并共用同一个统计对象。
+ */
+public class CountingDeflateExtension extends PerMessageDeflateExtension {
+    private final int level;
+    private final int threshold;
+    private final CompressionStats stats;
+
+    public CountingDeflateExtension(int level, int threshold, CompressionStats stats) {
+        this.level = level;
+        this.threshold = threshold;
+        this.stats = stats;
+        setThreshold(threshold);
+        // permessage-deflate要求不带zlib头的原始deflate数据
+        setDeflater(new Deflater(level, true));
+    }
+
+    @Override
+    public void encodeFrame(Framedata frame) {
+        long raw = frame.getPayloadData().remaining();
+        super.encodeFrame(frame);
+        stats.recordOut(raw, frame.getPayloadData().remaining());
+    }
+
+    @Override
+    public void decodeFrame(Framedata frame) throws InvalidDataException {
+        long wire = frame.getPayloadData().remaining();
+        super.decodeFrame(frame);
+        stats.recordIn(wire, frame.getPayloadData().remaining());
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        return new CountingDeflateExtension(level, threshold, stats);
+    }
+}
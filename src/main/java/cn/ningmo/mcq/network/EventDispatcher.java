@@ -0,0 +1,200 @@
+package cn.ningmo.mcq.network;
+
+import cn.ningmo.mcq.MCQ;
+import cn.ningmo.mcq.monitor.LatencyHistogram;
+
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 入站事件分发器：把事件处理从WebSocket读线程移到工作线程。
+ * <p>
+ * 相同key（群号或QQ号）的事件进入同一条串行通道，保证按到达顺序处理；
+ * 不同通道之间并行执行。Java 21及以上使用虚拟线程，否则使用固定大小的线程池。
+ */
+public class EventDispatcher {
+    private static final int LANE_COUNT = 64;
+
+    private final MCQ plugin;
+    private final ExecutorService executor;
+    private final Lane[] lanes = new Lane[LANE_COUNT];
+    private final boolean virtualThreads;
+    private final int maxPending;
+    private volatile boolean accepting = true;
+
+    // 统计数据
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final AtomicLong handled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram handlingTime = new LatencyHistogram();
+
+    public EventDispatcher(MCQ plugin) {
+        this.plugin = plugin;
+        this.maxPending = Math.max(1, plugin.getConfig().getInt("bot.dispatch.max-pending", 10000));
+
+        ExecutorService virtualExecutor = null;
+        if (plugin.getConfig().getBoolean("bot.dispatch.virtual-threads", true)) {
+            virtualExecutor = createVirtualThreadExecutor();
+        }
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.virtualThreads = true;
+        } else {
+            int workers = Math.max(1, plugin.getConfig().getInt("bot.dispatch.workers", 4));
+            AtomicInteger threadId = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "MCQ-Event-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.virtualThreads = false;
+        }
+
+        for (int i = 0; i < LANE_COUNT; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // 当前Java版本不支持虚拟线程
+            return null;
+        }
+    }
+
+    /**
+     * 提交一个事件处理任务
+     * @param key 排序键，相同key的任务按提交顺序执行
+     * @return 任务是否被接受
+     */
+    public boolean dispatch(long key, Runnable task) {
+        if (!accepting) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        int depth = pending.incrementAndGet();
+        if (depth > maxPending) {
+            pending.decrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+        maxDepth.accumulateAndGet(depth, Math::max);
+
+        Lane lane = lanes[(int) ((key ^ (key >>> 32)) & 0x7fffffff) % LANE_COUNT];
+        lane.tasks.add(new Task(task, System.nanoTime()));
+        lane.schedule();
+        return true;
+    }
+
+    /**
+     * 停止接收新事件，在截止时间内等待已调度的通道执行完毕
+     * @return 未能处理而被丢弃的事件数量
+     */
+    public int shutdown(long timeoutMillis) {
+        accepting = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        // 超时被中断的通道或关闭时未能调度的通道中仍可能有任务
+        int remaining = 0;
+        for (Lane lane : lanes) {
+            while (lane.tasks.poll() != null) {
+                pending.decrementAndGet();
+                remaining++;
+            }
+        }
+        if (remaining > 0) {
+            rejected.addAndGet(remaining);
+            plugin.getLogger().warning("关闭时仍有 " + remaining + " 个入站事件未处理，已丢弃");
+        }
+        return remaining;
+    }
+
+    // Getters
+    public boolean isVirtualThreads() { return virtualThreads; }
+    public int getPending() { return pending.get(); }
+    public int getMaxDepth() { return maxDepth.get(); }
+    public long getHandled() { return handled.get(); }
+    public long getRejected() { return rejected.get(); }
+    public LatencyHistogram getWaitTime() { return waitTime; }
+    public LatencyHistogram getHandlingTime() { return handlingTime; }
+
+    private static class Task {
+        final Runnable runnable;
+        final long submitTime;
+
+        Task(Runnable runnable, long submitTime) {
+            this.runnable = runnable;
+            this.submitTime = submitTime;
+        }
+    }
+
+    /**
+     * 串行通道：同一时间最多只有一个线程在执行该通道的任务
+     */
+    private class Lane implements Runnable {
+        final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // 分发器已关闭
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Task task;
+                while ((task = tasks.poll()) != null) {
+                    long start = System.nanoTime();
+                    waitTime.recordNanos(start - task.submitTime);
+                    try {
+                        task.runnable.run();
+                    } catch (Exception e) {
+                        plugin.getLogManager().error("处理入站事件时发生错误", e);
+                    } catch (Error e) {
+                        plugin.getLogManager().error("处理入站事件时发生严重错误", e);
+                        throw e;
+                    } finally {
+                        handlingTime.recordNanos(System.nanoTime() - start);
+                        handled.incrementAndGet();
+                        pending.decrementAndGet();
+                    }
+                }
+            } finally {
+                // 即使任务抛出Error也要释放通道，否则该通道不会再被调度
+                scheduled.set(false);
+                // 释放通道后可能有新任务刚好入队
+                if (!tasks.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+}
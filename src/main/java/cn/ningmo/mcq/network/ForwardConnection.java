@@ -0,0 +1,78 @@
+package cn.ningmo.mcq.network;
+
+import cn.ningmo.mcq.MCQ;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+
+/**
+ * 正向WebSocket连接：由插件主动连接到OneBot实现
+ */
+public class ForwardConnection extends WebSocketClient implements BotConnection {
+    private final MCQ plugin;
+    private final ConnectionInfo info;
+    private volatile boolean closing;
+
+    public ForwardConnection(MCQ plugin, String name, String wsUrl, Draft draft) {
+        super(URI.create(wsUrl), draft);
+        this.plugin = plugin;
+        this.info = new ConnectionInfo(name);
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+        info.opened();
+        plugin.getBotClient().onConnectionOpen(this);
+    }
+
+    @Override
+    public void onMessage(String message) {
+        info.received();
+        plugin.getBotClient().handleFrame(this, message);
+    }
+
+    @Override
+    public void send(String frame) {
+        super.send(frame);
+        info.sent();
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        plugin.getLogManager().websocket("[" + info.getName() + "] 与OneBot服务器断开连接: " + reason);
+        if (closing) {
+            info.setState(ConnectionState.CLOSED);
+            return;
+        }
+        plugin.getConnectionPool().getSupervisor().onClosed(this);
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        plugin.getLogManager().error("[" + info.getName() + "] WebSocket连接错误", ex);
+    }
+
+    @Override
+    public void close() {
+        closing = true;
+        super.close();
+    }
+
+    @Override
+    public void abort(String reason) {
+        closeConnection(CloseFrame.ABNORMAL_CLOSE, reason);
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return isOpen();
+    }
+
+    @Override
+    public ConnectionInfo getInfo() {
+        return info;
+    }
+}
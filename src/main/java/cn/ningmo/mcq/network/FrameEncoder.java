@@ -0,0 +1,113 @@
+package cn.ningmo.mcq.network;
+
+/**
+ * 常用OneBot API请求帧的编码器，直接拼接JSON文本，
+ * 不经过JsonObject树和Gson序列化。
+ * <p>
+ * 每个线程复用一个缓冲区；群发时消息正文只需转义一次即可用于所有群。
+ */
+public final class FrameEncoder {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /** 心跳使用的get_status请求帧 */
+    public static final String HEARTBEAT_FRAME = getStatus("heartbeat");
+
+    private FrameEncoder() {
+    }
+
+    /**
+     * 转义JSON字符串内容（不含两侧引号），无需转义时直接返回原字符串
+     */
+    public static String escape(String text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && !needsEscape(text.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return text;
+        }
+
+        StringBuilder builder = new StringBuilder(length + 16);
+        builder.append(text, 0, i);
+        appendEscaped(builder, text, i);
+        return builder.toString();
+    }
+
+    public static String groupMessage(long groupId, String escapedMessage, String echo) {
+        StringBuilder builder = buffer();
+        builder.append("{\"action\":\"send_group_msg\",\"params\":{\"group_id\":").append(groupId)
+            .append(",\"message\":\"").append(escapedMessage).append("\"}");
+        return finish(builder, echo);
+    }
+
+    public static String privateMessage(long userId, String escapedMessage, String echo) {
+        StringBuilder builder = buffer();
+        builder.append("{\"action\":\"send_private_msg\",\"params\":{\"user_id\":").append(userId)
+            .append(",\"message\":\"").append(escapedMessage).append("\"}");
+        return finish(builder, echo);
+    }
+
+    public static String getStatus(String echo) {
+        StringBuilder builder = buffer();
+        builder.append("{\"action\":\"get_status\",\"params\":{}");
+        return finish(builder, echo);
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder builder = BUFFER.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    private static String finish(StringBuilder builder, String echo) {
+        if (echo != null) {
+            builder.append(",\"echo\":\"");
+            appendEscaped(builder, echo, 0);
+            builder.append('"');
+        }
+        builder.append('}');
+        return builder.toString();
+    }
+
+    private static boolean needsEscape(char c) {
+        return c < 0x20 || c == '"' || c == '\\';
+    }
+
+    private static void appendEscaped(StringBuilder builder, String text, int from) {
+        for (int i = from, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (!needsEscape(c)) {
+                builder.append(c);
+                continue;
+            }
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\b':
+                    builder.append("\\b");
+                    break;
+                case '\f':
+                    builder.append("\\f");
+                    break;
+                default:
+                    builder.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package cn.ningmo.mcq.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * 从OneBot推送帧中提取出的事件字段，只包含处理器实际用到的部分。
+ * 数值字段为0表示帧中不存在该字段。
+ */
+public class InboundEvent {
+    final String raw;
+    String postType;
+    String messageType;
+    String subType;
+    String metaEventType;
+    String noticeType;
+    String requestType;
+    String echo;
+    long groupId;
+    long userId;
+    long selfId;
+    long messageId;
+    String rawMessage;
+    String messageFormat;
+    String messageText;
+    JsonArray messageArray;
+    boolean hasSender;
+    String senderNickname;
+    String senderCard;
+    long senderUserId;
+    JsonObject response;
+
+    InboundEvent(String raw) {
+        this.raw = raw;
+    }
+
+    /** 原始帧文本，用于调试日志 */
+    public String getRaw() { return raw; }
+    public String getPostType() { return postType; }
+    public String getMessageType() { return messageType; }
+    public String getSubType() { return subType; }
+    public String getMetaEventType() { return metaEventType; }
+    public String getNoticeType() { return noticeType; }
+    public String getRequestType() { return requestType; }
+    public String getEcho() { return echo; }
+    public long getGroupId() { return groupId; }
+    public long getUserId() { return userId; }
+    public long getSelfId() { return selfId; }
+    public long getMessageId() { return messageId; }
+    public String getRawMessage() { return rawMessage; }
+    public String getMessageFormat() { return messageFormat; }
+    /** 字符串形式的message字段，数组形式时为null */
+    public String getMessageText() { return messageText; }
+    /** 数组形式的message字段，字符串形式时为null */
+    public JsonArray getMessageArray() { return messageArray; }
+    public boolean hasMessage() { return messageText != null || messageArray != null; }
+    public boolean hasSender() { return hasSender; }
+    public String getSenderNickname() { return senderNickname; }
+    public String getSenderCard() { return senderCard; }
+    public long getSenderUserId() { return senderUserId; }
+    /** API响应帧的完整内容，非响应帧为null */
+    public JsonObject getResponse() { return response; }
+    public boolean isResponse() { return echo != null; }
+}
@@ -0,0 +1,218 @@
+package cn.ningmo.mcq.network;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+/**
+ * 基于JsonReader的流式入站帧解析器。
+ * <p>
+ * 第一遍只读取 post_type、message_type、group_id 和 echo，
+ * 非互通群的群消息在构建任何对象前即被丢弃；
+ * 需要处理的帧再读取第二遍，只提取处理器用到的字段。
+ */
+public class InboundEventParser {
+    private final LongPredicate bridgedGroup;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param bridgedGroup 判断群号是否为互通群
+     */
+    public InboundEventParser(LongPredicate bridgedGroup) {
+        this.bridgedGroup = bridgedGroup;
+    }
+
+    /**
+     * 解析一帧
+     * @return 解析出的事件，无需处理的帧返回null
+     */
+    public InboundEvent parse(String frame) throws IOException {
+        received.incrementAndGet();
+
+        String postType = null;
+        String messageType = null;
+        String echo = null;
+        long groupId = 0;
+
+        try (JsonReader reader = new JsonReader(new StringReader(frame))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "post_type":
+                        postType = readString(reader);
+                        break;
+                    case "message_type":
+                        messageType = readString(reader);
+                        break;
+                    case "group_id":
+                        groupId = readLong(reader);
+                        break;
+                    case "echo":
+                        echo = readString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+
+                // 已能确定是非互通群的群消息时立即丢弃，不再读取剩余内容
+                if (groupId != 0 && "group".equals(messageType) && "message".equals(postType)
+                        && !bridgedGroup.test(groupId)) {
+                    dropped.incrementAndGet();
+                    return null;
+                }
+            }
+        }
+
+        InboundEvent event = new InboundEvent(frame);
+        if (echo != null) {
+            // API响应，心跳响应无需解析内容
+            event.echo = echo;
+            if (!"heartbeat".equals(echo)) {
+                event.response = JsonParser.parseString(frame).getAsJsonObject();
+            }
+            return event;
+        }
+
+        if (postType == null) {
+            dropped.incrementAndGet();
+            return null;
+        }
+
+        readFields(event);
+        return event;
+    }
+
+    private void readFields(InboundEvent event) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(event.raw))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "post_type":
+                        event.postType = readString(reader);
+                        break;
+                    case "message_type":
+                        event.messageType = readString(reader);
+                        break;
+                    case "sub_type":
+                        event.subType = readString(reader);
+                        break;
+                    case "meta_event_type":
+                        event.metaEventType = readString(reader);
+                        break;
+                    case "notice_type":
+                        event.noticeType = readString(reader);
+                        break;
+                    case "request_type":
+                        event.requestType = readString(reader);
+                        break;
+                    case "group_id":
+                        event.groupId = readLong(reader);
+                        break;
+                    case "user_id":
+                        event.userId = readLong(reader);
+                        break;
+                    case "self_id":
+                        event.selfId = readLong(reader);
+                        break;
+                    case "message_id":
+                        event.messageId = readLong(reader);
+                        break;
+                    case "raw_message":
+                        event.rawMessage = readString(reader);
+                        break;
+                    case "message_format":
+                        event.messageFormat = readString(reader);
+                        break;
+                    case "message":
+                        readMessage(reader, event);
+                        break;
+                    case "sender":
+                        readSender(reader, event);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+        }
+    }
+
+    private void readMessage(JsonReader reader, InboundEvent event) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_ARRAY) {
+            JsonElement element = JsonParser.parseReader(reader);
+            event.messageArray = element.getAsJsonArray();
+        } else {
+            event.messageText = readString(reader);
+        }
+    }
+
+    private void readSender(JsonReader reader, InboundEvent event) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        event.hasSender = true;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "nickname":
+                    event.senderNickname = readString(reader);
+                    break;
+                case "card":
+                    event.senderCard = readString(reader);
+                    break;
+                case "user_id":
+                    event.senderUserId = readLong(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * 读取字符串或数值，其它类型跳过并返回null
+     */
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * 读取数值（兼容字符串形式的数字），无法读取时返回0
+     */
+    private static long readLong(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            try {
+                return reader.nextLong();
+            } catch (NumberFormatException e) {
+                reader.skipValue();
+                return 0;
+            }
+        }
+        reader.skipValue();
+        return 0;
+    }
+
+    public long getReceived() { return received.get(); }
+    public long getDropped() { return dropped.get(); }
+}
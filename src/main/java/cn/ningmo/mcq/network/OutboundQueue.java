@@ -0,0 +1,431 @@
+package cn.ningmo.mcq.network;
+
+import cn.ningmo.mcq.MCQ;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 出站消息队列：调用方只负责入队，由单独的写线程把帧发送到OneBot，
+ * 避免聊天线程或主线程被WebSocket发送阻塞。
+ * <p>
+ * 队列按优先级分为多条通道，写线程总是先发送高优先级消息，
+ * 并通过全局及每个群的令牌桶限制发送速率（高优先级消息只受全局限速）。
+ */
+public class OutboundQueue {
+    private static final int MAX_SCAN = 32;
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final MCQ plugin;
+    private final Sink sink;
+    private final ArrayDeque<Entry>[] lanes;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread writer;
+    private volatile boolean accepting = true;
+    private volatile boolean running = true;
+    private int size;
+
+    // 限速设置
+    private final boolean rateLimitEnabled;
+    private final TokenBucket globalBucket;
+    private final double targetRate;
+    private final double targetBurst;
+    private final Map<Long, TokenBucket> targetBuckets = new HashMap<>();
+
+    // 统计数据
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong[] laneDropped;
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public OutboundQueue(MCQ plugin, Sink sink) {
+        this.plugin = plugin;
+        this.sink = sink;
+
+        FileConfiguration config = plugin.getConfig();
+        this.capacity = Math.max(1, config.getInt("bot.send-queue.capacity", 1000));
+        this.overflowPolicy = OverflowPolicy.parse(config.getString("bot.send-queue.overflow-policy", "drop-oldest"));
+        this.blockTimeoutMillis = config.getLong("bot.send-queue.block-timeout", 50);
+
+        Priority[] priorities = Priority.values();
+        this.lanes = new ArrayDeque[priorities.length];
+        this.laneDropped = new AtomicLong[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+            laneDropped[i] = new AtomicLong();
+        }
+
+        long now = System.nanoTime();
+        this.rateLimitEnabled = config.getBoolean("bot.rate-limit.enabled", false);
+        this.globalBucket = new TokenBucket(
+            config.getDouble("bot.rate-limit.global-rate", 5),
+            config.getDouble("bot.rate-limit.global-burst", 10),
+            now
+        );
+        this.targetRate = config.getDouble("bot.rate-limit.group-rate", 1);
+        this.targetBurst = config.getDouble("bot.rate-limit.group-burst", 5);
+
+        this.writer = new Thread(this::runWriter, "MCQ-Sender");
+        this.writer.setDaemon(true);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * 提交一个待发送的帧
+     * @param target 限速目标，群消息为群号，私聊消息为QQ号的相反数
+     * @return 帧是否进入队列
+     */
+    public boolean offer(String frame, long target, Priority priority) {
+        return offer(frame, target, priority, System.currentTimeMillis());
+    }
+
+    /**
+     * 提交一个待发送的帧
+     * @param createdAt 消息的创建时间，重新发送发件箱中的消息时保留原始时间
+     */
+    public boolean offer(String frame, long target, Priority priority, long createdAt) {
+        return offer(new Entry(frame, target, priority, createdAt, System.nanoTime(), null));
+    }
+
+    /**
+     * 提交一个等待响应的API调用帧，这类帧不会保存到发件箱：
+     * 没有可用连接或发送失败时立即调用onFailure，而不是在连接恢复后才重放已超时的调用
+     */
+    public boolean offerCall(String frame, long target, Priority priority, Consumer<Exception> onFailure) {
+        return offer(new Entry(frame, target, priority, System.currentTimeMillis(), System.nanoTime(), onFailure));
+    }
+
+    private boolean offer(Entry entry) {
+        String frame = entry.frame;
+        Priority priority = entry.priority;
+        if (!accepting) {
+            countDropped(priority);
+            return false;
+        }
+
+        boolean accepted;
+        Entry shed = null;
+        lock.lock();
+        try {
+            accepted = size < capacity;
+            if (!accepted) {
+                shed = makeRoom(priority);
+                accepted = shed != null;
+            }
+            if (!accepted && overflowPolicy == OverflowPolicy.BLOCK) {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+                while (size >= capacity && remaining > 0) {
+                    remaining = notFull.awaitNanos(remaining);
+                }
+                accepted = size < capacity;
+            }
+            if (accepted) {
+                lanes[priority.ordinal()].addLast(entry);
+                size++;
+                notEmpty.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        } finally {
+            lock.unlock();
+        }
+
+        // 在锁外通知被挤出队列的API调用，回调可能再次提交消息
+        if (shed != null) {
+            fail(shed, new IllegalStateException("发送队列已满，调用已被新消息挤出"));
+        }
+        if (accepted) {
+            enqueued.incrementAndGet();
+        } else {
+            countDropped(priority);
+            if (plugin.getLogManager().isDebug()) {
+                plugin.getLogManager().debug("发送队列已满，丢弃消息: " + frame);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * 队列已满时按溢出策略腾出空间，总是先丢弃优先级最低的消息
+     * @return 被丢弃的消息，无法腾出空间时返回null
+     */
+    private Entry makeRoom(Priority incoming) {
+        for (int i = lanes.length - 1; i >= 0; i--) {
+            if (lanes[i].isEmpty()) {
+                continue;
+            }
+            // drop-oldest允许丢弃同级消息，其它策略只丢弃更低优先级的消息
+            boolean canShed = i > incoming.ordinal()
+                || (i == incoming.ordinal() && overflowPolicy == OverflowPolicy.DROP_OLDEST);
+            if (!canShed) {
+                return null;
+            }
+            Entry shed = lanes[i].pollFirst();
+            size--;
+            countDropped(Priority.values()[i]);
+            return shed;
+        }
+        return null;
+    }
+
+    private void runWriter() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (entry == null) {
+                break;
+            }
+
+            long latency = System.nanoTime() - entry.enqueueTime;
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+
+            try {
+                sink.send(entry.frame, entry.target, entry.priority, entry.createdAt, entry.onFailure == null);
+                sent.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                if (entry.onFailure != null) {
+                    // 由调用方处理失败
+                    entry.onFailure.accept(e);
+                } else {
+                    plugin.getLogManager().error("发送消息到OneBot时发生错误", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 取出下一条可以发送的消息，没有可用令牌时等待
+     * @return 队列已关闭且为空时返回null
+     */
+    private Entry take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (size == 0) {
+                    if (!running) {
+                        return null;
+                    }
+                    notEmpty.awaitNanos(IDLE_WAIT_NANOS);
+                    continue;
+                }
+
+                long now = System.nanoTime();
+                long waitNanos = rateLimitEnabled ? globalBucket.nanosUntilToken(now) : 0;
+                if (waitNanos == 0) {
+                    long[] targetWait = {Long.MAX_VALUE};
+                    Entry entry = pollSendable(now, targetWait);
+                    if (entry != null) {
+                        if (rateLimitEnabled) {
+                            globalBucket.consume();
+                        }
+                        size--;
+                        notFull.signal();
+                        return entry;
+                    }
+                    waitNanos = targetWait[0];
+                }
+                notEmpty.awaitNanos(Math.min(Math.max(waitNanos, 1), IDLE_WAIT_NANOS));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按优先级查找第一条目标群仍有令牌的消息
+     */
+    private Entry pollSendable(long now, long[] minWait) {
+        for (ArrayDeque<Entry> lane : lanes) {
+            int scanned = 0;
+            Iterator<Entry> iterator = lane.iterator();
+            while (iterator.hasNext() && scanned++ < MAX_SCAN) {
+                Entry entry = iterator.next();
+                // 命令回复等高优先级消息只受全局限速，不占用群的额度
+                if (!rateLimitEnabled || entry.priority == Priority.HIGH) {
+                    iterator.remove();
+                    return entry;
+                }
+                TokenBucket bucket = targetBuckets.computeIfAbsent(entry.target,
+                    k -> new TokenBucket(targetRate, targetBurst, now));
+                long wait = bucket.nanosUntilToken(now);
+                if (wait == 0) {
+                    bucket.consume();
+                    iterator.remove();
+                    return entry;
+                }
+                minWait[0] = Math.min(minWait[0], wait);
+            }
+        }
+
+        // 清理已回满的令牌桶，避免长期占用内存
+        if (targetBuckets.size() > capacity) {
+            targetBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+        return null;
+    }
+
+    /**
+     * 未发送就被丢弃的API调用立即以失败结束，调用方不必等到调用超时
+     */
+    private static void fail(Entry entry, Exception cause) {
+        if (entry.onFailure != null) {
+            entry.onFailure.accept(cause);
+        }
+    }
+
+    private void countDropped(Priority priority) {
+        dropped.incrementAndGet();
+        laneDropped[priority.ordinal()].incrementAndGet();
+    }
+
+    /**
+     * 停止接收新消息，并在截止时间内尽量发送完队列中剩余的消息
+     * @return 超时后被丢弃的消息数量
+     */
+    public int shutdown(long timeoutMillis) {
+        accepting = false;
+        running = false;
+        try {
+            writer.join(Math.max(1, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            writer.interrupt();
+        }
+
+        int remaining;
+        List<Entry> calls = new ArrayList<>();
+        lock.lock();
+        try {
+            remaining = size;
+            for (ArrayDeque<Entry> lane : lanes) {
+                for (Entry entry : lane) {
+                    if (entry.onFailure != null) {
+                        calls.add(entry);
+                    }
+                }
+                lane.clear();
+            }
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+        for (Entry entry : calls) {
+            fail(entry, new IllegalStateException("发送队列已关闭，调用未发送"));
+        }
+        if (remaining > 0) {
+            dropped.addAndGet(remaining);
+            plugin.getLogger().warning("关闭时仍有 " + remaining + " 条消息未发送，已丢弃");
+        }
+        return remaining;
+    }
+
+    // Getters
+    public long getEnqueued() { return enqueued.get(); }
+    public long getSent() { return sent.get(); }
+    public long getDropped() { return dropped.get(); }
+    public long getDropped(Priority priority) { return laneDropped[priority.ordinal()].get(); }
+    public long getFailed() { return failed.get(); }
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+
+    public int getDepth() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getDepth(Priority priority) {
+        lock.lock();
+        try {
+            return lanes[priority.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getAverageLatencyMillis() {
+        long count = sent.get() + failed.get();
+        return count == 0 ? 0 : totalLatencyNanos.get() / (double) count / 1_000_000;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1_000_000.0;
+    }
+
+    public interface Sink {
+        /**
+         * @param persistable 没有可用连接时是否可以保存到发件箱，API调用为false
+         */
+        void send(String frame, long target, Priority priority, long createdAt, boolean persistable) throws Exception;
+    }
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST,
+        BLOCK;
+
+        static OverflowPolicy parse(String value) {
+            if (value == null) {
+                return DROP_OLDEST;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return DROP_OLDEST;
+            }
+        }
+    }
+
+    private static class Entry {
+        final String frame;
+        final long target;
+        final Priority priority;
+        final long createdAt;
+        final long enqueueTime;
+        // 不为null时表示API调用帧
+        final Consumer<Exception> onFailure;
+
+        Entry(String frame, long target, Priority priority, long createdAt, long enqueueTime,
+                Consumer<Exception> onFailure) {
+            this.frame = frame;
+            this.target = target;
+            this.priority = priority;
+            this.createdAt = createdAt;
+            this.enqueueTime = enqueueTime;
+            this.onFailure = onFailure;
+        }
+    }
+}
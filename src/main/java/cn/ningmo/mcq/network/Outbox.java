@@ -0,0 +1,285 @@
+package cn.ningmo.mcq.network;
+
+import cn.ningmo.mcq.MCQ;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 断线期间的持久化发件箱：基于内存映射文件的追加日志，
+ * 连接恢复后按顺序把未过期的消息重新放回发送队列。
+ * <p>
+ * 文件格式：头部为 魔数、读位置、写位置 三个int，
+ * 之后每条记录为 创建时间(long)、目标(long)、优先级(byte)、长度(int)、UTF-8内容。
+ * <p>
+ * 写入的内容进程崩溃时不会丢失（由操作系统的页缓存保存），后台任务每隔 sync-interval 秒
+ * 把有修改的映射刷到磁盘，因此系统断电或崩溃时最多丢失最后一个间隔内保存的消息。
+ * 重放时会校验每条记录的优先级和长度，遇到损坏的记录则丢弃它及之后的全部内容。
+ */
+public class Outbox {
+    private static final int MAGIC = 0x4D435131; // "MCQ1"
+    private static final int HEADER_SIZE = 12;
+    private static final int READ_POS_OFFSET = 4;
+    private static final int WRITE_POS_OFFSET = 8;
+    private static final int RECORD_HEADER_SIZE = 8 + 8 + 1 + 4;
+    private static final int PRIORITY_OFFSET = 8 + 8;
+
+    private final MCQ plugin;
+    private final Logger logger;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long maxAgeMillis;
+    private int readPos;
+    private int writePos;
+    // 上次刷盘后是否有修改
+    private boolean dirty;
+    private BukkitTask syncTask;
+
+    // 统计数据
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    public Outbox(MCQ plugin) throws IOException {
+        this(plugin, plugin.getLogger(), new File(plugin.getDataFolder(), "outbox.dat"),
+            plugin.getConfig().getInt("bot.outbox.max-size", 1024) * 1024,
+            plugin.getConfig().getLong("bot.outbox.max-age", 300) * 1000);
+    }
+
+    /**
+     * 不依赖插件实例的构造方法，不会启动后台刷盘任务
+     */
+    Outbox(Logger logger, File file, int capacity, long maxAgeMillis) throws IOException {
+        this(null, logger, file, capacity, maxAgeMillis);
+    }
+
+    private Outbox(MCQ plugin, Logger logger, File file, int capacity, long maxAgeMillis) throws IOException {
+        this.plugin = plugin;
+        this.logger = logger;
+        this.capacity = Math.max(HEADER_SIZE + 1024, capacity);
+        this.maxAgeMillis = maxAgeMillis;
+
+        this.channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        // 校验上次留下的数据，损坏或容量变化时重新开始
+        readPos = buffer.getInt(READ_POS_OFFSET);
+        writePos = buffer.getInt(WRITE_POS_OFFSET);
+        if (buffer.getInt(0) != MAGIC || readPos < HEADER_SIZE || writePos < readPos || writePos > capacity) {
+            buffer.putInt(0, MAGIC);
+            readPos = HEADER_SIZE;
+            writePos = HEADER_SIZE;
+            commit();
+        } else if (writePos > readPos) {
+            logger.info("发件箱中有上次未发送的消息，将在连接后重新发送");
+        }
+    }
+
+    /**
+     * 启动定期刷盘任务
+     */
+    public synchronized void start() {
+        long interval = Math.max(1, plugin.getConfig().getLong("bot.outbox.sync-interval", 1)) * 20L;
+        syncTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::sync, interval, interval);
+    }
+
+    /**
+     * 有修改时把映射内容刷到磁盘
+     */
+    public synchronized void sync() {
+        if (!dirty) {
+            return;
+        }
+        buffer.force();
+        dirty = false;
+    }
+
+    /**
+     * 保存一条未能发送的消息
+     */
+    public synchronized void append(String frame, long target, Priority priority, long createdAt) {
+        byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+        int recordSize = RECORD_HEADER_SIZE + bytes.length;
+        if (recordSize > capacity - HEADER_SIZE) {
+            overflowed.incrementAndGet();
+            return;
+        }
+
+        // 空间不足时先整理，仍不足则丢弃最旧的消息
+        if (writePos + recordSize > capacity) {
+            compact();
+            while (writePos + recordSize > capacity) {
+                skipRecord();
+                overflowed.incrementAndGet();
+                compact();
+            }
+        }
+
+        buffer.position(writePos);
+        buffer.putLong(createdAt);
+        buffer.putLong(target);
+        buffer.put((byte) priority.ordinal());
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        writePos += recordSize;
+        commit();
+        stored.incrementAndGet();
+    }
+
+    /**
+     * 按保存顺序把未过期的消息放回发送队列
+     * @return 重新入队的消息数量
+     */
+    public int replay(OutboundQueue queue) {
+        // 先取出全部记录再入队，避免写线程在入队期间等待发件箱的锁
+        List<Record> records = drain();
+        for (Record record : records) {
+            queue.offer(record.frame, record.target, record.priority, record.createdAt);
+        }
+        replayed.addAndGet(records.size());
+        return records.size();
+    }
+
+    /**
+     * 取出全部未过期的记录并清空发件箱，遇到损坏的记录时停止读取并丢弃剩余内容
+     */
+    synchronized List<Record> drain() {
+        List<Record> records = new ArrayList<>();
+        long expireBefore = System.currentTimeMillis() - maxAgeMillis;
+        Priority[] priorities = Priority.values();
+
+        while (readPos < writePos) {
+            int length = recordLength(readPos);
+            int ordinal = length >= 0 ? buffer.get(readPos + PRIORITY_OFFSET) : -1;
+            if (ordinal < 0 || ordinal >= priorities.length) {
+                logger.warning("发件箱在位置 " + readPos + " 处的记录已损坏，丢弃剩余的 "
+                    + (writePos - readPos) + " 字节");
+                break;
+            }
+            buffer.position(readPos);
+            long createdAt = buffer.getLong();
+            long target = buffer.getLong();
+            Priority priority = priorities[ordinal];
+            buffer.position(readPos + RECORD_HEADER_SIZE);
+            readPos += RECORD_HEADER_SIZE + length;
+
+            if (createdAt < expireBefore) {
+                expired.incrementAndGet();
+                continue;
+            }
+
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            records.add(new Record(new String(bytes, StandardCharsets.UTF_8), target, priority, createdAt));
+        }
+
+        readPos = HEADER_SIZE;
+        writePos = HEADER_SIZE;
+        commit();
+        return records;
+    }
+
+    /**
+     * 读取记录的内容长度，记录头不完整或长度超出已写入的范围时返回-1
+     */
+    private int recordLength(int position) {
+        if (writePos - position < RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int length = buffer.getInt(position + RECORD_HEADER_SIZE - 4);
+        if (length < 0 || length > writePos - position - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        return length;
+    }
+
+    private void skipRecord() {
+        int length = recordLength(readPos);
+        if (length < 0) {
+            // 记录已损坏，无法找到下一条记录的位置，只能全部丢弃
+            logger.warning("发件箱在位置 " + readPos + " 处的记录已损坏，丢弃剩余的 "
+                + (writePos - readPos) + " 字节");
+            readPos = writePos;
+            return;
+        }
+        readPos += RECORD_HEADER_SIZE + length;
+    }
+
+    /**
+     * 把未读取的记录移动到文件开头
+     */
+    private void compact() {
+        if (readPos == HEADER_SIZE) {
+            return;
+        }
+        int pending = writePos - readPos;
+        byte[] bytes = new byte[pending];
+        buffer.position(readPos);
+        buffer.get(bytes);
+        buffer.position(HEADER_SIZE);
+        buffer.put(bytes);
+        readPos = HEADER_SIZE;
+        writePos = HEADER_SIZE + pending;
+        commit();
+    }
+
+    private void commit() {
+        buffer.putInt(READ_POS_OFFSET, readPos);
+        buffer.putInt(WRITE_POS_OFFSET, writePos);
+        dirty = true;
+    }
+
+    public synchronized boolean isEmpty() {
+        return readPos == writePos;
+    }
+
+    public synchronized int getPendingBytes() {
+        return writePos - readPos;
+    }
+
+    public synchronized void close() {
+        if (syncTask != null) {
+            syncTask.cancel();
+            syncTask = null;
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "关闭发件箱时发生错误", e);
+        }
+    }
+
+    // Getters
+    public long getStored() { return stored.get(); }
+    public long getReplayed() { return replayed.get(); }
+    public long getExpired() { return expired.get(); }
+    public long getOverflowed() { return overflowed.get(); }
+
+    static final class Record {
+        final String frame;
+        final long target;
+        final Priority priority;
+        final long createdAt;
+
+        Record(String frame, long target, Priority priority, long createdAt) {
+            this.frame = frame;
+            this.target = target;
+            this.priority = priority;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package cn.ningmo.mcq.network;
+
+/**
+ * 出站消息优先级，数值越小越优先发送，压力过大时优先丢弃低优先级消息
+ */
+public enum Priority {
+    /** 命令回复、性能警告等 */
+    HIGH,
+    /** 聊天转发 */
+    NORMAL,
+    /** 进出服通知 */
+    LOW
+}
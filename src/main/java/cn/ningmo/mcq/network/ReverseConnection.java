@@ -0,0 +1,44 @@
+package cn.ningmo.mcq.network;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.framing.CloseFrame;
+
+/**
+ * 反向WebSocket连接：由OneBot实现主动连接到插件的反向WS服务器
+ */
+public class ReverseConnection implements BotConnection {
+    private final WebSocket socket;
+    private final ConnectionInfo info;
+
+    public ReverseConnection(WebSocket socket, String name) {
+        this.socket = socket;
+        this.info = new ConnectionInfo(name);
+    }
+
+    @Override
+    public void send(String frame) {
+        socket.send(frame);
+        info.sent();
+    }
+
+    @Override
+    public void close() {
+        socket.close(CloseFrame.GOING_AWAY, "服务器关闭");
+    }
+
+    @Override
+    public void abort(String reason) {
+        // 反向连接由OneBot实现负责重连
+        socket.close(CloseFrame.GOING_AWAY, reason);
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return socket.isOpen();
+    }
+
+    @Override
+    public ConnectionInfo getInfo() {
+        return info;
+    }
+}
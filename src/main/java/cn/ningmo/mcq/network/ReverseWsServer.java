@@ -0,0 +1,149 @@
+package cn.ningmo.mcq.network;
+
+import cn.ningmo.mcq.MCQ;
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshakeBuilder;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+
+/**
+ * 反向WebSocket服务器：OneBot实现（Universal模式）主动连接到插件，
+ * 每个接入的账号作为一个 {@link ReverseConnection} 加入连接池，
+ * 与正向连接使用相同的事件处理和发送路由。
+ */
+public class ReverseWsServer extends WebSocketServer {
+    private final MCQ plugin;
+    private final ConnectionPool pool;
+    private final byte[] accessToken;
+
+    public ReverseWsServer(MCQ plugin, ConnectionPool pool, InetSocketAddress address, String accessToken, Draft draft) {
+        super(address, Collections.singletonList(draft));
+        this.plugin = plugin;
+        this.pool = pool;
+        this.accessToken = toTokenBytes(accessToken);
+        setReuseAddr(true);
+    }
+
+    /**
+     * 把配置中的access token转为字节，留空时返回null表示不校验
+     */
+    static byte[] toTokenBytes(String accessToken) {
+        return accessToken == null || accessToken.isEmpty() ? null : accessToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 握手阶段校验access token和客户端角色，校验失败时拒绝连接
+     */
+    @Override
+    public ServerHandshakeBuilder onWebsocketHandshakeReceivedAsServer(WebSocket conn, Draft draft,
+            ClientHandshake request) throws InvalidDataException {
+        ServerHandshakeBuilder builder = super.onWebsocketHandshakeReceivedAsServer(conn, draft, request);
+        String reason = validateHandshake(accessToken, request);
+        if (reason != null) {
+            plugin.getLogManager().websocket("拒绝反向WS连接（" + reason + "）: " + conn.getRemoteSocketAddress());
+            throw new InvalidDataException(CloseFrame.POLICY_VALIDATION, reason);
+        }
+        return builder;
+    }
+
+    /**
+     * 校验握手请求
+     * @param accessToken 期望的access token，为null时不校验
+     * @return 拒绝原因，校验通过时返回null
+     */
+    static String validateHandshake(byte[] accessToken, ClientHandshake request) {
+        if (accessToken != null) {
+            String token = extractToken(request);
+            if (token == null || !MessageDigest.isEqual(accessToken, token.getBytes(StandardCharsets.UTF_8))) {
+                return "access token无效";
+            }
+        }
+
+        String role = request.getFieldValue("X-Client-Role");
+        if (!role.isEmpty() && !"Universal".equalsIgnoreCase(role)) {
+            return "仅支持Universal模式: " + role;
+        }
+        return null;
+    }
+
+    /**
+     * 读取 Authorization: Bearer/Token 请求头或 access_token 查询参数
+     */
+    private static String extractToken(ClientHandshake request) {
+        String authorization = request.getFieldValue("Authorization");
+        if (!authorization.isEmpty()) {
+            int space = authorization.indexOf(' ');
+            return space < 0 ? authorization : authorization.substring(space + 1).trim();
+        }
+
+        String resource = request.getResourceDescriptor();
+        int query = resource != null ? resource.indexOf('?') : -1;
+        if (query >= 0) {
+            for (String parameter : resource.substring(query + 1).split("&")) {
+                if (parameter.startsWith("access_token=")) {
+                    return parameter.substring("access_token=".length());
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        String selfId = handshake.getFieldValue("X-Self-ID");
+        String name = "reverse-" + (selfId.isEmpty() ? String.valueOf(conn.getRemoteSocketAddress()) : selfId);
+
+        ReverseConnection connection = new ReverseConnection(conn, name);
+        ConnectionInfo info = connection.getInfo();
+        info.opened();
+        if (!selfId.isEmpty()) {
+            try {
+                info.setSelfId(Long.parseLong(selfId));
+            } catch (NumberFormatException ignored) {
+                // 以get_login_info的结果为准
+            }
+        }
+        conn.setAttachment(connection);
+        pool.add(connection);
+        plugin.getBotClient().onConnectionOpen(connection);
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        ReverseConnection connection = conn.getAttachment();
+        if (connection == null) {
+            return;
+        }
+        connection.getInfo().received();
+        plugin.getBotClient().handleFrame(connection, message);
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        ReverseConnection connection = conn.getAttachment();
+        if (connection == null) {
+            return;
+        }
+        connection.getInfo().setState(ConnectionState.CLOSED);
+        pool.remove(connection);
+        plugin.getLogManager().websocket("[" + connection.getInfo().getName() + "] 反向WS连接已断开: " + reason);
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        plugin.getLogManager().error("反向WS服务器错误", ex);
+    }
+
+    @Override
+    public void onStart() {
+        plugin.getLogManager().websocket("反向WS服务器已启动，监听端口 " + getPort());
+    }
+}
@@ -0,0 +1,54 @@
+package cn.ningmo.mcq.network;
+
+/**
+ * 令牌桶限速器，非线程安全，由调用方负责加锁
+ */
+class TokenBucket {
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double ratePerSecond, double burst, long now) {
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = now;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+
+    boolean hasToken(long now) {
+        refill(now);
+        return tokens >= 1;
+    }
+
+    void consume() {
+        tokens -= 1;
+    }
+
+    /**
+     * 距离下一个令牌可用还需等待的纳秒数
+     */
+    long nanosUntilToken(long now) {
+        refill(now);
+        if (tokens >= 1) {
+            return 0;
+        }
+        if (tokensPerNano <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    boolean isFull(long now) {
+        refill(now);
+        return tokens >= burst;
+    }
+}
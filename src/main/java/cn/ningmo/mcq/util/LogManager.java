@@ -1,9 +1,9 @@
 package cn.ningmo.mcq.util;
 
 import cn.ningmo.mcq.MCQ;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,7 +20,7 @@ public class LogManager {
     private boolean whitelist;
     private List<String> ignoredExceptions;
     private int dedupTime;
-    private final Map<String, Long> errorHistory = new HashMap<>();
+    private final Map<String, Long> errorHistory = new ConcurrentHashMap<>();
     
     public LogManager(MCQ plugin) {
         this.plugin = plugin;
@@ -0,0 +1,77 @@
+package cn.ningmo.mcq.util;
+
+import java.util.Collection;
+
+/**
+ * 不可变的long集合，使用开放寻址（线性探测）存储原始类型，
+ * 查询时不产生装箱和对象分配
+ */
+public final class LongHashSet {
+    private static final long EMPTY = 0L;
+
+    private final long[] table;
+    private final int mask;
+    private final boolean containsZero;
+    private final int size;
+
+    public LongHashSet(Collection<Long> values) {
+        int capacity = Integer.highestOneBit(Math.max(4, values.size() * 2 - 1)) << 1;
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+
+        boolean zero = false;
+        int count = 0;
+        for (Long boxed : values) {
+            if (boxed == null) {
+                continue;
+            }
+            long value = boxed;
+            if (value == EMPTY) {
+                if (!zero) {
+                    zero = true;
+                    count++;
+                }
+                continue;
+            }
+            int index = indexOf(value);
+            while (table[index] != EMPTY && table[index] != value) {
+                index = (index + 1) & mask;
+            }
+            if (table[index] == EMPTY) {
+                table[index] = value;
+                count++;
+            }
+        }
+        this.containsZero = zero;
+        this.size = count;
+    }
+
+    private int indexOf(long value) {
+        // 混合高低位，避免连续QQ号集中在相邻槽位
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int index = indexOf(value);
+        long current;
+        while ((current = table[index]) != EMPTY) {
+            if (current == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,172 @@
+package cn.ningmo.mcq.util;
+
+import java.util.Arrays;
+
+/**
+ * 以long为键的哈希表，开放寻址（线性探测）存储原始类型的键，
+ * 查询时不产生装箱。非线程安全，由调用方负责同步。
+ */
+public final class LongObjectMap<V> {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    // 键0单独存放，因为0用于标记空槽位
+    private V zeroValue;
+    private boolean hasZero;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private int indexOf(long key) {
+        // 混合高低位，避免连续QQ号集中在相邻槽位
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == EMPTY) {
+            return zeroValue;
+        }
+        int index = indexOf(key);
+        long current;
+        while ((current = keys[index]) != EMPTY) {
+            if (current == key) {
+                return (V) values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @return 原来的值，没有时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == EMPTY) {
+            V previous = zeroValue;
+            if (!hasZero) {
+                hasZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        int index = indexOf(key);
+        long current;
+        while ((current = keys[index]) != EMPTY) {
+            if (current == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        // 负载因子不超过1/2
+        if (size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return 被移除的值，没有时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == EMPTY) {
+            V previous = zeroValue;
+            if (hasZero) {
+                hasZero = false;
+                zeroValue = null;
+                size--;
+            }
+            return previous;
+        }
+        int index = indexOf(key);
+        long current;
+        while ((current = keys[index]) != EMPTY) {
+            if (current == key) {
+                V previous = (V) values[index];
+                shiftBack(index);
+                size--;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * 删除后把同一探测链上后面的元素前移，保持查找不被空槽位截断
+     */
+    private void shiftBack(int hole) {
+        int index = hole;
+        while (true) {
+            index = (index + 1) & mask;
+            long key = keys[index];
+            if (key == EMPTY) {
+                break;
+            }
+            int home = indexOf(key);
+            // home不在 (hole, index] 区间内时可以移动到空位
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = key;
+                values[hole] = values[index];
+                hole = index;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY) {
+                int index = indexOf(key);
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        zeroValue = null;
+        hasZero = false;
+        size = 0;
+    }
+}
@@ -0,0 +1,131 @@
+package cn.ningmo.mcq.whitelist;
+
+import cn.ningmo.mcq.util.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 白名单绑定关系的内存索引：玩家名（不区分大小写）到QQ号，
+ * 以及QQ号到其绑定的玩家列表，所有查询都是O(1)。
+ * <p>
+ * 启动时从持久化数据加载一次，之后绑定和解绑先更新索引，
+ * 持久化文件只用于保存。所有方法都是线程安全的。
+ */
+public final class BindingIndex {
+    private final Map<String, Binding> byPlayer = new HashMap<>();
+    private final LongObjectMap<List<String>> byQQ = new LongObjectMap<>();
+
+    private static String key(String playerName) {
+        return playerName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 添加或覆盖一个绑定
+     * @return 该玩家原来的绑定，没有时返回null
+     */
+    public synchronized Binding put(String playerName, long qqId) {
+        Binding previous = byPlayer.put(key(playerName), new Binding(playerName, qqId));
+        if (previous != null) {
+            removeFromQQ(previous);
+        }
+        List<String> players = byQQ.get(qqId);
+        if (players == null) {
+            players = new ArrayList<>(1);
+            byQQ.put(qqId, players);
+        }
+        players.add(playerName);
+        return previous;
+    }
+
+    /**
+     * 移除玩家的绑定
+     * @return 被移除的绑定，没有时返回null
+     */
+    public synchronized Binding remove(String playerName) {
+        Binding previous = byPlayer.remove(key(playerName));
+        if (previous != null) {
+            removeFromQQ(previous);
+        }
+        return previous;
+    }
+
+    private void removeFromQQ(Binding binding) {
+        List<String> players = byQQ.get(binding.qqId);
+        if (players == null) {
+            return;
+        }
+        players.remove(binding.playerName);
+        if (players.isEmpty()) {
+            byQQ.remove(binding.qqId);
+        }
+    }
+
+    /**
+     * 查询玩家的绑定，玩家名不区分大小写
+     */
+    public synchronized Binding get(String playerName) {
+        return byPlayer.get(key(playerName));
+    }
+
+    public synchronized boolean contains(String playerName) {
+        return byPlayer.containsKey(key(playerName));
+    }
+
+    /**
+     * QQ号已绑定的玩家数量
+     */
+    public synchronized int countByQQ(long qqId) {
+        List<String> players = byQQ.get(qqId);
+        return players == null ? 0 : players.size();
+    }
+
+    /**
+     * QQ号已绑定的玩家名（保存时的大小写）
+     */
+    public synchronized List<String> getPlayers(long qqId) {
+        List<String> players = byQQ.get(qqId);
+        return players == null ? Collections.<String>emptyList() : new ArrayList<>(players);
+    }
+
+    /**
+     * 所有绑定的快照，用于持久化
+     */
+    public synchronized List<Binding> snapshot() {
+        return new ArrayList<>(byPlayer.values());
+    }
+
+    public synchronized void clear() {
+        byPlayer.clear();
+        byQQ.clear();
+    }
+
+    public synchronized int size() {
+        return byPlayer.size();
+    }
+
+    /**
+     * 一条绑定：保留玩家名原本的大小写，用于保存和执行白名单命令
+     */
+    public static final class Binding {
+        private final String playerName;
+        private final long qqId;
+
+        Binding(String playerName, long qqId) {
+            this.playerName = playerName;
+            this.qqId = qqId;
+        }
+
+        public String getPlayerName() {
+            return playerName;
+        }
+
+        public long getQqId() {
+            return qqId;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package cn.ningmo.mcq.whitelist;
+
+import cn.ningmo.mcq.MCQ;
+import cn.ningmo.mcq.whitelist.BindingIndex.Binding;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 白名单绑定的延迟写入存储。
+ * <p>
+ * 绑定和解绑标记为待保存，并交给单独的日志线程按顺序在日志文件（whitelist.journal）
+ * 末尾追加一行并fsync，调用线程（通常是主线程）不等待磁盘写入；
+ * 后台任务定期把索引快照写入临时文件，再原子替换whitelist.yml并fsync所在目录，
+ * 多次修改合并为一次写入。写入快照前会把当前日志轮换为 whitelist.journal.flushing，
+ * 替换成功后删除，因此在两次保存之间或保存过程中崩溃，启动时重放日志即可恢复
+ * 已写入日志的全部修改（只有提交后尚未写入日志的几毫秒内的修改可能丢失）。
+ */
+public class BindingStore {
+    private static final String HEADER = "# MCQ白名单数据文件\n# 格式: 游戏ID: QQ号\n";
+
+    private final MCQ plugin;
+    private final BindingIndex index;
+    private final Path dataFile;
+    private final Path journalFile;
+    private final Path flushingJournalFile;
+    private final Path tempFile;
+    private final boolean journalEnabled;
+    private final long flushIntervalTicks;
+
+    // 按提交顺序写入日志的单线程
+    private final ExecutorService journalWriter;
+
+    // 以下字段由this加锁保护
+    private boolean dirty;
+    private boolean closed;
+    private BukkitTask flushTask;
+    // 日志文件由journalLock加锁保护，写入和轮换互斥
+    private final Object journalLock = new Object();
+    private FileChannel journal;
+    // 保证同一时间只有一次写入快照
+    private final Object flushLock = new Object();
+
+    public BindingStore(MCQ plugin, BindingIndex index) {
+        this.plugin = plugin;
+        this.index = index;
+        File folder = plugin.getDataFolder();
+        this.dataFile = new File(folder, "whitelist.yml").toPath();
+        this.journalFile = new File(folder, "whitelist.journal").toPath();
+        this.flushingJournalFile = new File(folder, "whitelist.journal.flushing").toPath();
+        this.tempFile = new File(folder, "whitelist.yml.tmp").toPath();
+        this.journalEnabled = plugin.getConfig().getBoolean("whitelist.storage.journal", true);
+        this.flushIntervalTicks = Math.max(1, plugin.getConfig().getInt("whitelist.storage.flush-interval", 5)) * 20L;
+        this.journalWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MCQ-Whitelist-Journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 从whitelist.yml加载绑定，再按顺序重放未保存的日志
+     */
+    public synchronized void load() {
+        if (!Files.exists(dataFile)) {
+            plugin.saveResource("whitelist.yml", false);
+        }
+        index.clear();
+        ConfigurationSection players = YamlConfiguration.loadConfiguration(dataFile.toFile())
+            .getConfigurationSection("players");
+        if (players != null) {
+            for (String playerName : players.getKeys(false)) {
+                String qq = players.getString(playerName);
+                try {
+                    Binding previous = index.put(playerName, Long.parseLong(qq));
+                    if (previous != null) {
+                        plugin.getLogger().warning("白名单中玩家 " + playerName + " 与 " + previous.getPlayerName()
+                            + " 仅大小写不同，以 " + playerName + " 的绑定为准");
+                    }
+                } catch (NumberFormatException e) {
+                    plugin.getLogger().warning("白名单中玩家 " + playerName + " 的QQ号无效: " + qq);
+                }
+            }
+        }
+
+        // 日志中的操作都是幂等的，即使已经写入whitelist.yml，再次重放也得到相同结果
+        int replayed = replay(flushingJournalFile) + replay(journalFile);
+        if (replayed > 0) {
+            plugin.getLogManager().whitelist("已从日志恢复 " + replayed + " 条未保存的白名单修改");
+            dirty = true;
+        }
+        plugin.getLogManager().whitelist("已加载 " + index.size() + " 条白名单绑定");
+    }
+
+    private int replay(Path file) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try {
+            return replay(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), index);
+        } catch (IOException e) {
+            plugin.getLogger().severe("读取白名单日志 " + file.getFileName() + " 时发生错误: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 按顺序把日志内容应用到索引
+     * @return 应用的操作数量
+     */
+    static int replay(String content, BindingIndex index) {
+        int count = 0;
+        int start = 0;
+        int end;
+        // 没有换行结尾的最后一行是崩溃时写了一半的行，不处理
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            String[] parts = content.substring(start, end).split("\t");
+            start = end + 1;
+            if (parts.length == 3 && parts[0].equals("B")) {
+                try {
+                    index.put(parts[2], Long.parseLong(parts[1]));
+                    count++;
+                } catch (NumberFormatException ignored) {
+                    // 损坏的行
+                }
+            } else if (parts.length == 2 && parts[0].equals("U")) {
+                index.remove(parts[1]);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized void start() {
+        flushTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin,
+            this::flushIfDirty, flushIntervalTicks, flushIntervalTicks);
+    }
+
+    /**
+     * 停止后台任务并立即保存，由插件关闭时调用
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (flushTask != null) {
+                flushTask.cancel();
+                flushTask = null;
+            }
+        }
+        // 等待已提交的日志写完
+        journalWriter.shutdown();
+        try {
+            journalWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushIfDirty();
+        synchronized (journalLock) {
+            closeJournal();
+        }
+    }
+
+    /**
+     * 记录一次绑定，调用前应已更新索引
+     */
+    public void recordBind(String playerName, long qqId) {
+        append("B\t" + qqId + "\t" + playerName + "\n");
+    }
+
+    /**
+     * 记录一次解绑，调用前应已更新索引
+     */
+    public void recordUnbind(String playerName) {
+        append("U\t" + playerName + "\n");
+    }
+
+    private void append(String line) {
+        synchronized (this) {
+            dirty = true;
+            if (!journalEnabled) {
+                return;
+            }
+            if (!closed) {
+                try {
+                    journalWriter.execute(() -> writeJournal(line));
+                    return;
+                } catch (RejectedExecutionException ignored) {
+                    // 日志线程已停止，直接写入
+                }
+            }
+        }
+        writeJournal(line);
+    }
+
+    private void writeJournal(String line) {
+        synchronized (journalLock) {
+            try {
+                if (journal == null) {
+                    journal = FileChannel.open(journalFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+                journal.force(false);
+            } catch (IOException e) {
+                // 修改仍在索引中，下次保存时写入
+                plugin.getLogger().severe("写入白名单日志时发生错误: " + e.getMessage());
+                closeJournal();
+            }
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响数据，日志内容已经fsync
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * 有未保存的修改时写入快照
+     */
+    public void flushIfDirty() {
+        synchronized (flushLock) {
+            List<Binding> snapshot;
+            // 持有日志锁时取快照和轮换日志：已写入旧日志的修改都包含在快照中，之后的修改写入新的日志
+            synchronized (journalLock) {
+                synchronized (this) {
+                    if (!dirty) {
+                        return;
+                    }
+                    snapshot = index.snapshot();
+                    dirty = false;
+                }
+                closeJournal();
+                try {
+                    if (Files.exists(journalFile)) {
+                        if (Files.exists(flushingJournalFile)) {
+                            // 上一次保存失败留下的日志，合并到一起等待本次保存
+                            appendFile(journalFile, flushingJournalFile);
+                            Files.delete(journalFile);
+                        } else {
+                            Files.move(journalFile, flushingJournalFile, StandardCopyOption.ATOMIC_MOVE);
+                        }
+                    }
+                } catch (IOException e) {
+                    plugin.getLogger().severe("轮换白名单日志时发生错误: " + e.getMessage());
+                    synchronized (this) {
+                        dirty = true;
+                    }
+                    return;
+                }
+            }
+
+            try {
+                writeSnapshot(snapshot);
+                Files.deleteIfExists(flushingJournalFile);
+            } catch (IOException e) {
+                plugin.getLogger().severe("保存白名单数据时发生错误: " + e.getMessage());
+                synchronized (this) {
+                    dirty = true;
+                }
+            }
+        }
+    }
+
+    private static void appendFile(Path source, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(source));
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(false);
+        }
+    }
+
+    /**
+     * 写入临时文件并fsync，再原子替换whitelist.yml
+     */
+    private void writeSnapshot(List<Binding> snapshot) throws IOException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.createSection("players");
+        for (Binding binding : snapshot) {
+            yaml.set("players." + binding.getPlayerName(), String.valueOf(binding.getQqId()));
+        }
+        byte[] data = (HEADER + yaml.saveToString()).getBytes(StandardCharsets.UTF_8);
+
+        try (FileChannel out = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        try {
+            Files.move(tempFile, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, dataFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // 替换本身也要落盘，否则崩溃后可能看到旧的whitelist.yml，而日志已被删除
+        syncDirectory(dataFile.toAbsolutePath().getParent());
+    }
+
+    /**
+     * fsync目录，使其中的重命名和删除持久化；不支持打开目录的平台（如Windows）上忽略
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // 平台不支持
+        }
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+}
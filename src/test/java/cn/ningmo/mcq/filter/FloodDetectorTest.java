@@ -0,0 +1,69 @@
+package cn.ningmo.mcq.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FloodDetectorTest {
+    private static final String AD = "加群领取免费皮肤，群号123456789，先到先得";
+
+    private static int distance(String a, String b) {
+        return Long.bitCount(FloodDetector.simHash(a) ^ FloodDetector.simHash(b));
+    }
+
+    @Test
+    void simHashIgnoresCaseWhitespaceAndPunctuation() {
+        assertEquals(FloodDetector.simHash("Free Diamonds Here"), FloodDetector.simHash("free  diamonds\there"));
+        assertEquals(FloodDetector.simHash(AD), FloodDetector.simHash("加群.领取免费皮肤!!群号 123456789~先到先得"));
+    }
+
+    @Test
+    void smallEditsStayClose() {
+        assertTrue(distance(AD, "加群领取免费皮肤，群号123456780，先到先得") <= 10);
+        assertTrue(distance(AD, "速来！加群领取免费皮肤，群号123456789，先到先得") <= 10);
+    }
+
+    @Test
+    void unrelatedMessagesAreFar() {
+        assertTrue(distance(AD, "今天晚上一起去下界挖远古残骸吗") > 16);
+        assertTrue(distance("有人知道末地城在哪个方向吗", "服务器什么时候重启更新插件") > 16);
+    }
+
+    @Test
+    void blocksAfterThresholdSimilarMessages() {
+        FloodDetector detector = new FloodDetector(20, 60, 10, 2, 8);
+        assertFalse(detector.isFlood(1L, AD));
+        assertFalse(detector.isFlood(1L, "加群领取免费皮肤，群号123456780，先到先得"));
+        assertTrue(detector.isFlood(1L, "加群领取免费皮肤，群号123456781，先到先得"));
+        // 被拒绝的消息也会记录，持续刷屏一直被拦截
+        assertTrue(detector.isFlood(1L, AD));
+    }
+
+    @Test
+    void groupsAreIndependent() {
+        FloodDetector detector = new FloodDetector(20, 60, 10, 1, 8);
+        assertFalse(detector.isFlood(1L, AD));
+        assertFalse(detector.isFlood(2L, AD));
+        assertTrue(detector.isFlood(1L, AD));
+    }
+
+    @Test
+    void ignoresShortMessages() {
+        FloodDetector detector = new FloodDetector(20, 60, 10, 1, 8);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(detector.isFlood(1L, "哈哈哈"));
+        }
+    }
+
+    @Test
+    void oldMessagesLeaveTheWindow() {
+        FloodDetector detector = new FloodDetector(2, 60, 10, 1, 8);
+        assertFalse(detector.isFlood(1L, AD));
+        assertFalse(detector.isFlood(1L, "今天晚上一起去下界挖远古残骸吗"));
+        assertFalse(detector.isFlood(1L, "服务器什么时候重启更新插件"));
+        // 窗口只保留最近两条，最早的广告已被覆盖
+        assertFalse(detector.isFlood(1L, AD));
+    }
+}
@@ -0,0 +1,114 @@
+package cn.ningmo.mcq.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    @Test
+    void disabledLimiterAllowsEverything() {
+        RateLimiter limiter = new RateLimiter(0);
+        assertFalse(limiter.isEnabled());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire(1L));
+        }
+        assertEquals(0, limiter.getTracked());
+    }
+
+    @Test
+    void allowsBurstThenRejects() {
+        RateLimiter limiter = new RateLimiter(10);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(42L), "第 " + (i + 1) + " 条应被允许");
+        }
+        assertFalse(limiter.tryAcquire(42L));
+        assertFalse(limiter.tryAcquire(42L));
+        assertEquals(2, limiter.getRejected());
+    }
+
+    @Test
+    void keysAreIndependent() {
+        RateLimiter limiter = new RateLimiter(1);
+        assertTrue(limiter.tryAcquire(1L));
+        assertFalse(limiter.tryAcquire(1L));
+        assertTrue(limiter.tryAcquire(2L));
+        assertTrue(limiter.tryAcquire(-1L));
+        assertEquals(3, limiter.getTracked());
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        // 每分钟60000条，即每毫秒一条
+        RateLimiter limiter = new RateLimiter(60000);
+        int allowed = 0;
+        while (limiter.tryAcquire(7L)) {
+            allowed++;
+        }
+        assertTrue(allowed >= 60000);
+        Thread.sleep(20);
+        assertTrue(limiter.tryAcquire(7L));
+    }
+
+    @Test
+    void evictsOnlyFullBuckets() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(60000);
+        limiter.tryAcquire(1L);
+        RateLimiter slow = new RateLimiter(1);
+        slow.tryAcquire(1L);
+
+        Thread.sleep(5);
+        limiter.evictIdle();
+        slow.evictIdle();
+        assertEquals(0, limiter.getTracked());
+        assertEquals(1, limiter.getEvicted());
+        // 一分钟一条的桶还没有恢复，不能清理，否则会重置限流
+        assertEquals(1, slow.getTracked());
+        assertFalse(slow.tryAcquire(1L));
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedBurst() throws InterruptedException {
+        int perMinute = 60;
+        RateLimiter limiter = new RateLimiter(perMinute);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire(99L)) {
+                        allowed.incrementAndGet();
+                    }
+                    if (i % 100 == 0) {
+                        limiter.evictIdle();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // 每秒恢复一条，测试耗时超过1秒时允许相应多出几条
+        long refilled = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - begin);
+        assertTrue(allowed.get() >= perMinute && allowed.get() <= perMinute + refilled, "允许了 " + allowed.get() + " 条");
+        assertEquals(8 * 1000 - allowed.get(), limiter.getRejected());
+    }
+}
@@ -0,0 +1,117 @@
+package cn.ningmo.mcq.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * 敏感词替换的基准测试：比较 {@link WordMatcher} 与原来逐词
+ * {@code replaceAll(Pattern.quote(word), ...)} 的实现。
+ * <p>
+ * 不会被单元测试执行，需要手动运行：
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes cn.ningmo.mcq.filter.WordMatcherBenchmark [词数] [消息数] [轮数]
+ * </pre>
+ * 词表和消息由固定种子生成，同样的参数每次得到相同的输入；每种实现先预热再计时，
+ * 输出每条消息的平均耗时和结果校验和（校验和用于防止结果被优化掉）。
+ */
+public final class WordMatcherBenchmark {
+    private static final long SEED = 20240601L;
+    // 常用汉字范围内取字，与实际聊天内容的字符分布接近
+    private static final char FIRST = '一';
+    private static final int ALPHABET = 3000;
+
+    private WordMatcherBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int wordCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int messageCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Random random = new Random(SEED);
+        List<String> words = new ArrayList<>(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            words.add(randomText(random, 2 + random.nextInt(3)));
+        }
+        String[] messages = new String[messageCount];
+        for (int i = 0; i < messageCount; i++) {
+            StringBuilder message = new StringBuilder(randomText(random, 10 + random.nextInt(40)));
+            // 约四分之一的消息包含敏感词
+            if (random.nextInt(4) == 0) {
+                message.insert(random.nextInt(message.length()), words.get(random.nextInt(wordCount)));
+            }
+            messages[i] = message.toString();
+        }
+
+        System.out.println(String.format(Locale.ROOT, "词数=%d 消息数=%d 轮数=%d", wordCount, messageCount, rounds));
+
+        long buildStart = System.nanoTime();
+        WordMatcher matcher = new WordMatcher(words, false);
+        long buildNanos = System.nanoTime() - buildStart;
+        System.out.println(String.format(Locale.ROOT, "WordMatcher 构建: %.2f ms, %d 个状态",
+            buildNanos / 1e6, matcher.getStateCount()));
+
+        run("replaceAll", messages, rounds, message -> replaceAllLoop(message, words, "*"));
+        run("WordMatcher", messages, rounds, message -> matcher.replace(message, "*"));
+    }
+
+    private interface Filter {
+        String apply(String message);
+    }
+
+    private static void run(String name, String[] messages, int rounds, Filter filter) {
+        // 预热
+        long checksum = 0;
+        for (int i = 0; i < rounds; i++) {
+            checksum += pass(messages, filter);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            checksum += pass(messages, filter);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(String.format(Locale.ROOT, "%-12s %10.2f us/条  (校验和 %d)",
+            name, best / 1e3 / messages.length, checksum));
+    }
+
+    private static long pass(String[] messages, Filter filter) {
+        long hash = 0;
+        for (String message : messages) {
+            hash = hash * 31 + filter.apply(message).hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * 原实现：每个敏感词编译一次正则并替换整条消息
+     */
+    static String replaceAllLoop(String message, List<String> words, String replacement) {
+        String result = message;
+        for (String word : words) {
+            result = result.replaceAll(Pattern.quote(word), repeat(replacement, word.length()));
+        }
+        return result;
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder(text.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (FIRST + random.nextInt(ALPHABET));
+        }
+        return new String(chars);
+    }
+}
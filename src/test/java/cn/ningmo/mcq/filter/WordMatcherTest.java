@@ -0,0 +1,110 @@
+package cn.ningmo.mcq.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WordMatcherTest {
+
+    @Test
+    void replacesEveryOccurrence() {
+        WordMatcher matcher = new WordMatcher(Arrays.asList("傻瓜", "笨蛋"), false);
+        assertEquals("你是**还是**，**", matcher.replace("你是傻瓜还是笨蛋，傻瓜", "*"));
+    }
+
+    @Test
+    void returnsSameStringWithoutMatch() {
+        WordMatcher matcher = new WordMatcher(Arrays.asList("abc"), false);
+        String text = "hello world";
+        assertSame(text, matcher.replace(text, "*"));
+        assertFalse(matcher.contains(text));
+    }
+
+    @Test
+    void masksOverlappingAndNestedWords() {
+        WordMatcher matcher = new WordMatcher(Arrays.asList("abc", "bcd", "c", "abcdef"), false);
+        assertEquals("x****y", matcher.replace("xabcdy", "*"));
+        assertEquals("******", matcher.replace("abcdef", "*"));
+        assertEquals("a*a", matcher.replace("aca", "*"));
+    }
+
+    @Test
+    void ignoresCaseWhenConfigured() {
+        WordMatcher sensitive = new WordMatcher(Arrays.asList("Bad"), false);
+        WordMatcher insensitive = new WordMatcher(Arrays.asList("Bad"), true);
+        assertEquals("so BAD", sensitive.replace("so BAD", "*"));
+        assertEquals("so ***", insensitive.replace("so BAD", "*"));
+        assertTrue(insensitive.contains("bAd"));
+    }
+
+    @Test
+    void skipsEmptyAndDuplicateWords() {
+        WordMatcher matcher = new WordMatcher(Arrays.asList("", null, "ab", "ab"), false);
+        assertEquals(1, matcher.getWordCount());
+        assertEquals("--c", matcher.replace("abc", "-"));
+        assertEquals(0, new WordMatcher(Collections.<String>emptyList(), false).getWordCount());
+    }
+
+    @Test
+    void mapsMatchesBackThroughOffsets() {
+        WordMatcher matcher = new WordMatcher(Arrays.asList("abc"), false);
+        // 规范化去掉了原文中的分隔符 "a.b c"
+        String text = "xa.b cy";
+        String scanned = "xabcy";
+        int[] offsets = {0, 1, 3, 5, 6};
+        assertEquals("x*****y", matcher.replace(text, scanned, offsets, "*"));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomInput() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<String> words = new ArrayList<>();
+            int wordCount = 1 + random.nextInt(8);
+            for (int i = 0; i < wordCount; i++) {
+                words.add(randomText(random, 1 + random.nextInt(4)));
+            }
+            WordMatcher matcher = new WordMatcher(words, false);
+            for (int i = 0; i < 20; i++) {
+                String text = randomText(random, random.nextInt(30));
+                assertEquals(bruteForce(text, words), matcher.replace(text, "*"), "词表 " + words + " 文本 " + text);
+            }
+        }
+    }
+
+    /**
+     * 逐位置比较所有敏感词，替换所有出现位置的并集
+     */
+    private static String bruteForce(String text, List<String> words) {
+        boolean[] masked = new boolean[text.length()];
+        for (String word : words) {
+            for (int i = 0; i + word.length() <= text.length(); i++) {
+                if (text.startsWith(word, i)) {
+                    Arrays.fill(masked, i, i + word.length(), true);
+                }
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            builder.append(masked[i] ? '*' : text.charAt(i));
+        }
+        return builder.toString();
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,48 @@
+package cn.ningmo.mcq.message;
+
+import cn.ningmo.mcq.message.MessageTemplate.Placeholder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageTemplateTest {
+
+    @Test
+    void rendersPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("[QQ] {sender}: {message}");
+        String rendered = template.render(MessageTemplate.values()
+            .set(Placeholder.SENDER, "小明")
+            .set(Placeholder.MESSAGE, "你好"));
+        assertEquals("[QQ] 小明: 你好", rendered);
+    }
+
+    @Test
+    void keepsUnknownPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("{playr} {player} {");
+        assertEquals("{playr} Steve {", template.render(MessageTemplate.values().set(Placeholder.PLAYER, "Steve")));
+    }
+
+    @Test
+    void keepsUnsetPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("<{player}@{world}> {message}");
+        assertEquals("<Steve@{world}> hi", template.render(MessageTemplate.values()
+            .set(Placeholder.PLAYER, "Steve")
+            .set(Placeholder.MESSAGE, "hi")));
+    }
+
+    @Test
+    void reportsUsedPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("{time} {qq}");
+        assertTrue(template.uses(Placeholder.TIME));
+        assertTrue(template.uses(Placeholder.QQ));
+        assertFalse(template.uses(Placeholder.GROUP));
+        assertEquals("{time} 10001", template.render(MessageTemplate.values().set(Placeholder.QQ, 10001)));
+    }
+
+    @Test
+    void toleratesNullFormat() {
+        assertEquals("", MessageTemplate.compile(null).render(MessageTemplate.values()));
+    }
+}
@@ -0,0 +1,55 @@
+package cn.ningmo.mcq.message;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentRendererTest {
+    private final SegmentRenderer renderer = new SegmentRenderer();
+
+    private static JsonArray array(String json) {
+        return JsonParser.parseString(json).getAsJsonArray();
+    }
+
+    @Test
+    void keepsSpaceAfterAtAndImage() {
+        SegmentRenderer.Result result = renderer.render(array("["
+            + "{\"type\":\"at\",\"data\":{\"qq\":\"10001\",\"name\":\"Bob\"}},"
+            + "{\"type\":\"text\",\"data\":{\"text\":\"看\"}},"
+            + "{\"type\":\"image\",\"data\":{\"file\":\"a.png\"}},"
+            + "{\"type\":\"image\",\"data\":{\"file\":\"b.png\"}},"
+            + "{\"type\":\"text\",\"data\":{\"text\":\"好看\"}}]"));
+        assertEquals("@Bob 看[图片] [图片] 好看", result.getText());
+        assertFalse(result.isPureImage());
+    }
+
+    @Test
+    void trimsTrailingSpace() {
+        SegmentRenderer.Result result = renderer.render(array("["
+            + "{\"type\":\"image\",\"data\":{\"file\":\"a.png\"}}]"));
+        assertEquals("[图片]", result.getText());
+        assertTrue(result.isPureImage());
+    }
+
+    @Test
+    void rendersCqCodes() {
+        SegmentRenderer.Result result = renderer.render("[CQ:at,qq=10001,name=Bob]你好&#91;不是码&#93;[CQ:face,id=1]");
+        assertEquals("@Bob 你好[不是码][表情]", result.getText());
+        assertFalse(result.isPureImage());
+    }
+
+    @Test
+    void fallsBackToQqWithoutName() {
+        assertEquals("@10001 hi", renderer.render("[CQ:at,qq=10001]hi").getText());
+        assertEquals("@全体成员 hi", renderer.render("[CQ:at,qq=all]hi").getText());
+    }
+
+    @Test
+    void ignoresUnknownSegments() {
+        assertEquals("a b", renderer.render("a [CQ:unknown,x=1]b").getText());
+    }
+}
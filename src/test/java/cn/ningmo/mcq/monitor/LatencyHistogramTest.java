@@ -0,0 +1,75 @@
+package cn.ningmo.mcq.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getPercentileMillis(99), 0.0);
+        assertEquals(0.0, histogram.getMeanMillis(), 0.0);
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 0; micros < 8; micros++) {
+            histogram.recordNanos(micros * 1000L);
+        }
+        assertEquals(0.0, histogram.getPercentileMillis(12.5), 0.0);
+        assertEquals(0.003, histogram.getPercentileMillis(50), 1e-9);
+        assertEquals(0.007, histogram.getPercentileMillis(100), 1e-9);
+        assertEquals(0.0035, histogram.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    void percentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(7);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            // 1微秒到约1秒，对数分布
+            values[i] = (long) Math.pow(10, random.nextDouble() * 6);
+            histogram.recordNanos(values[i] * 1000);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100.0) - 1];
+            double reported = histogram.getPercentileMillis(percentile) * 1000;
+            // 返回桶的上界，不小于真实值，且相对误差不超过12.5%
+            assertTrue(reported >= exact, "p" + percentile + " " + reported + " < " + exact);
+            assertTrue(reported <= exact * 1.125 + 1, "p" + percentile + " " + reported + " > " + exact);
+        }
+        assertEquals(values[values.length - 1] / 1000.0, histogram.getMaxMillis(), 1e-9);
+    }
+
+    @Test
+    void bucketBoundariesAreContiguous() {
+        // 每个2的幂区间的边界值都应落入相邻的桶，并且上界不超过最大值
+        for (int shift = 3; shift < 40; shift++) {
+            long lower = 1L << shift;
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.recordNanos((lower - 1) * 1000);
+            histogram.recordNanos(lower * 1000);
+            assertEquals((lower - 1) / 1000.0, histogram.getPercentileMillis(50), 1e-9);
+            assertEquals(lower / 1000.0, histogram.getPercentileMillis(100), 1e-9);
+        }
+    }
+
+    @Test
+    void negativeDurationsCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-5000);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0.0, histogram.getMaxMillis(), 0.0);
+    }
+}
@@ -0,0 +1,75 @@
+package cn.ningmo.mcq.network;
+
+import org.java_websocket.framing.TextFrame;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 校验压缩扩展与Java-WebSocket的permessage-deflate实现配合正常：
+ * 设置的阈值和压缩级别生效，压缩后的帧可以被另一端还原
+ */
+class CountingDeflateExtensionTest {
+
+    private static TextFrame frame(byte[] payload) {
+        TextFrame frame = new TextFrame();
+        frame.setPayload(ByteBuffer.wrap(payload));
+        frame.setFin(true);
+        return frame;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static byte[] repeatedJson(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append("{\"action\":\"send_group_msg\",\"params\":{\"group_id\":114890266,\"message\":\"hello\"}}");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void compressesAndRestoresLargeFrames() throws Exception {
+        CompressionStats stats = new CompressionStats();
+        CountingDeflateExtension sender = new CountingDeflateExtension(6, 256, stats);
+        CountingDeflateExtension receiver = (CountingDeflateExtension) sender.copyInstance();
+
+        byte[] payload = repeatedJson(20);
+        TextFrame frame = frame(payload);
+        sender.encodeFrame(frame);
+        assertTrue(frame.isRSV1());
+        assertTrue(frame.getPayloadData().remaining() < payload.length / 4);
+
+        receiver.decodeFrame(frame);
+        assertArrayEquals(payload, bytes(frame.getPayloadData()));
+
+        // 两个扩展实例共用同一个统计对象
+        assertEquals(payload.length, stats.getRawOut());
+        assertEquals(payload.length, stats.getRawIn());
+        assertEquals(stats.getWireOut(), stats.getWireIn());
+        assertTrue(stats.getOutRatio() < 0.25);
+    }
+
+    @Test
+    void leavesFramesBelowThresholdUncompressed() throws Exception {
+        CompressionStats stats = new CompressionStats();
+        CountingDeflateExtension extension = new CountingDeflateExtension(6, 256, stats);
+
+        byte[] payload = "{\"echo\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+        TextFrame frame = frame(payload);
+        extension.encodeFrame(frame);
+        assertFalse(frame.isRSV1());
+        assertArrayEquals(payload, bytes(frame.getPayloadData()));
+        assertEquals(1.0, stats.getOutRatio(), 0.0);
+    }
+}
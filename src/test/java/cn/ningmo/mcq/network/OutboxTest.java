@@ -0,0 +1,183 @@
+package cn.ningmo.mcq.network;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxTest {
+    private static final Logger LOGGER = Logger.getLogger("OutboxTest");
+    // 文件头12字节，记录头 创建时间8 + 目标8 + 优先级1 + 长度4
+    private static final int FIRST_RECORD = 12;
+    private static final int CAPACITY = 12 + 1024;
+
+    private File file;
+    private Outbox outbox;
+
+    @BeforeEach
+    void createFile() throws IOException {
+        file = Files.createTempFile("outbox", ".dat").toFile();
+    }
+
+    @AfterEach
+    void deleteFile() {
+        if (outbox != null) {
+            outbox.close();
+        }
+        file.delete();
+    }
+
+    private Outbox open() throws IOException {
+        if (outbox != null) {
+            outbox.close();
+        }
+        outbox = new Outbox(LOGGER, file, CAPACITY, 60_000);
+        return outbox;
+    }
+
+    @Test
+    void drainsRecordsInOrder() throws IOException {
+        long now = System.currentTimeMillis();
+        open().append("first", 1L, Priority.HIGH, now);
+        outbox.append("第二条", -2L, Priority.LOW, now + 1);
+
+        List<Outbox.Record> records = outbox.drain();
+        assertEquals(2, records.size());
+        assertEquals("first", records.get(0).frame);
+        assertEquals(1L, records.get(0).target);
+        assertEquals(Priority.HIGH, records.get(0).priority);
+        assertEquals("第二条", records.get(1).frame);
+        assertEquals(-2L, records.get(1).target);
+        assertEquals(Priority.LOW, records.get(1).priority);
+        assertEquals(now + 1, records.get(1).createdAt);
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    void survivesReopen() throws IOException {
+        open().append("kept", 7L, Priority.NORMAL, System.currentTimeMillis());
+        List<Outbox.Record> records = open().drain();
+        assertEquals(1, records.size());
+        assertEquals("kept", records.get(0).frame);
+    }
+
+    @Test
+    void dropsOldestWhenFull() throws IOException {
+        open();
+        long now = System.currentTimeMillis();
+        // 每条记录 21 + 100 字节，1024字节最多容纳8条
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 97; i++) {
+            padding.append('x');
+        }
+        for (int i = 0; i < 30; i++) {
+            outbox.append(String.format("%03d", i) + padding, i, Priority.NORMAL, now);
+        }
+
+        List<Outbox.Record> records = outbox.drain();
+        assertEquals(8, records.size());
+        assertEquals(22, outbox.getOverflowed());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(22 + i, records.get(i).target);
+        }
+    }
+
+    @Test
+    void reusesSpaceAfterDrain() throws IOException {
+        open();
+        long now = System.currentTimeMillis();
+        for (int round = 0; round < 100; round++) {
+            outbox.append("round-" + round, round, Priority.NORMAL, now);
+            List<Outbox.Record> records = outbox.drain();
+            assertEquals(1, records.size());
+            assertEquals("round-" + round, records.get(0).frame);
+        }
+        assertEquals(0, outbox.getOverflowed());
+    }
+
+    @Test
+    void skipsExpiredRecords() throws IOException {
+        long now = System.currentTimeMillis();
+        open().append("old", 1L, Priority.NORMAL, now - 120_000);
+        outbox.append("new", 2L, Priority.NORMAL, now);
+
+        List<Outbox.Record> records = outbox.drain();
+        assertEquals(1, records.size());
+        assertEquals("new", records.get(0).frame);
+        assertEquals(1, outbox.getExpired());
+    }
+
+    @Test
+    void stopsAtCorruptPriority() throws IOException {
+        long now = System.currentTimeMillis();
+        open().append("good", 1L, Priority.NORMAL, now);
+        int second = FIRST_RECORD + 21 + 4;
+        outbox.append("bad", 2L, Priority.NORMAL, now);
+        outbox.append("after", 3L, Priority.NORMAL, now);
+        outbox.close();
+        outbox = null;
+
+        corrupt(second + 16, new byte[] {(byte) 0xFF});
+        List<Outbox.Record> records = open().drain();
+        assertEquals(1, records.size());
+        assertEquals("good", records.get(0).frame);
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    void stopsAtLengthBeyondWrittenData() throws IOException {
+        long now = System.currentTimeMillis();
+        open().append("good", 1L, Priority.NORMAL, now);
+        outbox.append("bad", 2L, Priority.NORMAL, now);
+        outbox.close();
+        outbox = null;
+
+        int second = FIRST_RECORD + 21 + 4;
+        corrupt(second + 17, new byte[] {0x7F, 0, 0, 0});
+        List<Outbox.Record> records = open().drain();
+        assertEquals(1, records.size());
+
+        // 负数长度同样视为损坏
+        outbox.append("x", 1L, Priority.NORMAL, now);
+        outbox.close();
+        outbox = null;
+        corrupt(FIRST_RECORD + 17, new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        assertEquals(0, open().drain().size());
+    }
+
+    @Test
+    void recoversFromCorruptRecordWhenFull() throws IOException {
+        long now = System.currentTimeMillis();
+        open().append("bad", 1L, Priority.NORMAL, now);
+        outbox.close();
+        outbox = null;
+        corrupt(FIRST_RECORD + 17, new byte[] {0x7F, 0, 0, 0});
+
+        // 空间不足时需要跳过最旧的记录，损坏的长度不能导致越界
+        open();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            large.append('y');
+        }
+        outbox.append(large.toString(), 2L, Priority.NORMAL, now);
+        List<Outbox.Record> records = outbox.drain();
+        assertEquals(1, records.size());
+        assertEquals(2L, records.get(0).target);
+    }
+
+    private void corrupt(int position, byte[] bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            raf.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package cn.ningmo.mcq.network;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.handshake.ServerHandshakeBuilder;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用本机回环连接验证反向WS握手校验：真实的客户端经过库的请求头解析后再交给
+ * {@link ReverseWsServer#validateHandshake}
+ */
+class ReverseWsServerTest {
+    private static final String TOKEN = "s3cret";
+
+    private HandshakeServer server;
+
+    @AfterEach
+    void stopServer() throws InterruptedException {
+        if (server != null) {
+            server.stop(1000);
+        }
+    }
+
+    @Test
+    void acceptsBearerToken() throws Exception {
+        start(TOKEN);
+        assertTrue(connect("/", header("Authorization", "Bearer " + TOKEN)));
+        assertEquals(1, server.opened.get());
+    }
+
+    @Test
+    void acceptsQueryToken() throws Exception {
+        start(TOKEN);
+        assertTrue(connect("/?foo=1&access_token=" + TOKEN, Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    void rejectsMissingToken() throws Exception {
+        start(TOKEN);
+        assertFalse(connect("/", Collections.<String, String>emptyMap()));
+        assertEquals(0, server.opened.get());
+    }
+
+    @Test
+    void rejectsWrongToken() throws Exception {
+        start(TOKEN);
+        assertFalse(connect("/", header("Authorization", "Bearer " + TOKEN + "x")));
+        assertFalse(connect("/?access_token=wrong", Collections.<String, String>emptyMap()));
+        assertEquals(0, server.opened.get());
+    }
+
+    @Test
+    void rejectsNonUniversalRole() throws Exception {
+        start(TOKEN);
+        Map<String, String> headers = header("Authorization", "Token " + TOKEN);
+        headers.put("X-Client-Role", "Event");
+        assertFalse(connect("/", headers));
+
+        headers.put("X-Client-Role", "Universal");
+        assertTrue(connect("/", headers));
+    }
+
+    @Test
+    void acceptsAnyClientWithoutToken() throws Exception {
+        start("");
+        assertTrue(connect("/", Collections.<String, String>emptyMap()));
+    }
+
+    private void start(String token) throws InterruptedException {
+        server = new HandshakeServer(ReverseWsServer.toTokenBytes(token));
+        server.start();
+        assertTrue(server.started.await(5, TimeUnit.SECONDS), "服务器未能启动");
+    }
+
+    private boolean connect(String resource, Map<String, String> headers) throws Exception {
+        URI uri = new URI("ws://127.0.0.1:" + server.getPort() + resource);
+        WebSocketClient client = new WebSocketClient(uri, headers) {
+            @Override public void onOpen(ServerHandshake handshake) { }
+            @Override public void onMessage(String message) { }
+            @Override public void onClose(int code, String reason, boolean remote) { }
+            @Override public void onError(Exception ex) { }
+        };
+        try {
+            return client.connectBlocking(5, TimeUnit.SECONDS);
+        } finally {
+            client.closeBlocking();
+        }
+    }
+
+    private static Map<String, String> header(String name, String value) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(name, value);
+        return headers;
+    }
+
+    /**
+     * 与ReverseWsServer使用相同的握手校验，但不依赖插件实例
+     */
+    private static class HandshakeServer extends WebSocketServer {
+        final byte[] accessToken;
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger opened = new AtomicInteger();
+
+        HandshakeServer(byte[] accessToken) {
+            super(new InetSocketAddress("127.0.0.1", 0));
+            this.accessToken = accessToken;
+            setReuseAddr(true);
+        }
+
+        @Override
+        public ServerHandshakeBuilder onWebsocketHandshakeReceivedAsServer(WebSocket conn, Draft draft,
+                ClientHandshake request) throws InvalidDataException {
+            ServerHandshakeBuilder builder = super.onWebsocketHandshakeReceivedAsServer(conn, draft, request);
+            String reason = ReverseWsServer.validateHandshake(accessToken, request);
+            if (reason != null) {
+                throw new InvalidDataException(CloseFrame.POLICY_VALIDATION, reason);
+            }
+            return builder;
+        }
+
+        @Override public void onOpen(WebSocket conn, ClientHandshake handshake) { opened.incrementAndGet(); }
+        @Override public void onClose(WebSocket conn, int code, String reason, boolean remote) { }
+        @Override public void onMessage(WebSocket conn, String message) { }
+        @Override public void onError(WebSocket conn, Exception ex) { }
+        @Override public void onStart() { started.countDown(); }
+    }
+}
@@ -0,0 +1,63 @@
+package cn.ningmo.mcq.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void emptySet() {
+        LongHashSet set = new LongHashSet(Collections.<Long>emptyList());
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0L));
+        assertFalse(set.contains(123L));
+    }
+
+    @Test
+    void handlesZeroNegativeAndDuplicates() {
+        LongHashSet set = new LongHashSet(Arrays.asList(0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 5L, 5L, 0L, null));
+        assertEquals(5, set.size());
+        assertTrue(set.contains(0L));
+        assertTrue(set.contains(-1L));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertTrue(set.contains(5L));
+        assertFalse(set.contains(6L));
+    }
+
+    @Test
+    void matchesHashSet() {
+        Random random = new Random(1);
+        for (int size : new int[] {1, 2, 3, 7, 100, 5000}) {
+            List<Long> values = new ArrayList<>();
+            Set<Long> expected = new HashSet<>();
+            // 连续群号和随机数混合，连续值容易产生探测冲突
+            long base = 100000000L + random.nextInt(1000);
+            for (int i = 0; i < size; i++) {
+                long value = random.nextBoolean() ? base + i : random.nextLong();
+                values.add(value);
+                expected.add(value);
+            }
+            LongHashSet set = new LongHashSet(values);
+            assertEquals(expected.size(), set.size());
+            for (long value : expected) {
+                assertTrue(set.contains(value));
+            }
+            for (int i = 0; i < 10000; i++) {
+                long probe = random.nextBoolean() ? base + size + i : random.nextLong();
+                assertEquals(expected.contains(probe), set.contains(probe));
+            }
+        }
+    }
+}
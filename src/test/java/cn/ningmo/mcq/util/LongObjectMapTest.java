@@ -0,0 +1,75 @@
+package cn.ningmo.mcq.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongObjectMapTest {
+
+    @Test
+    void putGetRemove() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1L, "a"));
+        assertEquals("a", map.put(1L, "b"));
+        assertEquals("b", map.get(1L));
+        assertNull(map.get(2L));
+        assertEquals("b", map.remove(1L));
+        assertNull(map.remove(1L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void zeroKeyIsStoredSeparately() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(0L, "zero");
+        map.put(Long.MIN_VALUE, "min");
+        assertEquals(2, map.size());
+        assertEquals("zero", map.get(0L));
+        assertEquals("zero", map.remove(0L));
+        assertNull(map.get(0L));
+        assertEquals("min", map.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        LongObjectMap<Integer> map = new LongObjectMap<>(4);
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertNull(map.get(i));
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        Random random = new Random(3);
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        // 键集中在小范围内，使删除频繁触发后移操作
+        for (int i = 0; i < 200000; i++) {
+            long key = random.nextInt(4) == 0 ? random.nextLong() : random.nextInt(2000) - 1000;
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            } else if (operation == 1) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
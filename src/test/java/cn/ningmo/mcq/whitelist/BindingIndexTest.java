@@ -0,0 +1,46 @@
+package cn.ningmo.mcq.whitelist;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BindingIndexTest {
+
+    @Test
+    void lookupIgnoresCaseButKeepsOriginalName() {
+        BindingIndex index = new BindingIndex();
+        index.put("Steve", 1L);
+        assertTrue(index.contains("STEVE"));
+        assertEquals("Steve", index.get("steve").getPlayerName());
+        assertEquals(Arrays.asList("Steve"), index.getPlayers(1L));
+    }
+
+    @Test
+    void rebindingMovesPlayerBetweenQQs() {
+        BindingIndex index = new BindingIndex();
+        index.put("Steve", 1L);
+        index.put("Alex", 1L);
+        BindingIndex.Binding previous = index.put("steve", 2L);
+
+        assertEquals(1L, previous.getQqId());
+        assertEquals(1, index.countByQQ(1L));
+        assertEquals(Arrays.asList("Alex"), index.getPlayers(1L));
+        assertEquals(Arrays.asList("steve"), index.getPlayers(2L));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void removeClearsBothDirections() {
+        BindingIndex index = new BindingIndex();
+        index.put("Steve", 1L);
+        assertEquals(1L, index.remove("STEVE").getQqId());
+        assertNull(index.remove("Steve"));
+        assertEquals(0, index.countByQQ(1L));
+        assertTrue(index.getPlayers(1L).isEmpty());
+        assertTrue(index.snapshot().isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package cn.ningmo.mcq.whitelist;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BindingStoreTest {
+
+    @Test
+    void replaysBindsAndUnbindsInOrder() {
+        BindingIndex index = new BindingIndex();
+        index.put("Alice", 1L);
+        int applied = BindingStore.replay(
+            "B\t2\tBob\n"
+            + "U\tAlice\n"
+            + "B\t3\tBob\n"
+            + "B\t3\tCarol\n", index);
+
+        assertEquals(4, applied);
+        assertFalse(index.contains("alice"));
+        assertEquals(3L, index.get("BOB").getQqId());
+        assertEquals(2, index.countByQQ(3L));
+        assertEquals(0, index.countByQQ(2L));
+    }
+
+    @Test
+    void ignoresTornLastLine() {
+        BindingIndex index = new BindingIndex();
+        // 崩溃时最后一行只写了一半，玩家名被截断
+        int applied = BindingStore.replay("B\t1\tSteve\nB\t2\tAle", index);
+
+        assertEquals(1, applied);
+        assertEquals(1, index.size());
+        assertNull(index.get("Ale"));
+    }
+
+    @Test
+    void skipsMalformedLines() {
+        BindingIndex index = new BindingIndex();
+        int applied = BindingStore.replay(
+            "B\tnot-a-number\tSteve\n"
+            + "X\tsomething\n"
+            + "\n"
+            + "B\t5\n"
+            + "B\t7\tAlex\n", index);
+
+        assertEquals(1, applied);
+        assertEquals(7L, index.get("alex").getQqId());
+        assertNull(index.get("Steve"));
+    }
+
+    @Test
+    void replayIsIdempotent() {
+        String journal = "B\t1\tSteve\nU\tAlex\nB\t2\tAlex\n";
+        BindingIndex once = new BindingIndex();
+        BindingStore.replay(journal, once);
+        BindingIndex twice = new BindingIndex();
+        BindingStore.replay(journal, twice);
+        BindingStore.replay(journal, twice);
+
+        assertEquals(once.size(), twice.size());
+        assertEquals(once.get("Alex").getQqId(), twice.get("Alex").getQqId());
+        assertEquals(1, twice.countByQQ(2L));
+    }
+}